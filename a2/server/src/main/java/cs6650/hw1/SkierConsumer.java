@@ -6,10 +6,20 @@ import com.rabbitmq.client.*;
 
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SkierConsumer {
   private static final String QUEUE_NAME = "ski_lift_rides";
-  private static final ConcurrentHashMap<Integer, Integer> skierLifts = new ConcurrentHashMap<>();
+  // Materialized views, kept up to date per ride so reads are a single lookup (vertical = liftID * 10).
+  // -Dconsumer.expectedSkierDays presizes the stores, -Dconsumer.offHeap=true keeps them off the heap.
+  private static final long EXPECTED_SKIER_DAYS = Long.getLong("consumer.expectedSkierDays", 1_000_000L);
+  private static final boolean OFF_HEAP = Boolean.getBoolean("consumer.offHeap");
+  // rides and vertical per (resort, season, day, skier)
+  private static final SkierDayStore skierDays = new SkierDayStore(EXPECTED_SKIER_DAYS, 64, OFF_HEAP);
+  // season totals, stored under day 0
+  private static final SkierDayStore skierSeasons = new SkierDayStore(EXPECTED_SKIER_DAYS / 8, 64, OFF_HEAP);
+  // SkierDayStore.pack(resortID, seasonID, dayID, 0) -> skiers seen that day
+  private static final ConcurrentHashMap<Long, AtomicInteger> resortDaySkiers = new ConcurrentHashMap<>();
   private static final int THREAD_COUNT = 8;
 
   public static void main(String[] args) throws Exception {
@@ -30,12 +40,20 @@ public class SkierConsumer {
           channel.basicQos(50);
 
           DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
             String message = new String(delivery.getBody(), StandardCharsets.UTF_8);
-            JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-            int skierID = json.get("skierID").getAsInt();
-            skierLifts.merge(skierID, 1, Integer::sum);
+            try {
+              JsonObject json = JsonParser.parseString(message).getAsJsonObject();
+              recordRide(json.get("resortID").getAsInt(), json.get("seasonID").getAsInt(),
+                  json.get("dayID").getAsInt(), json.get("skierID").getAsInt(), json.get("liftID").getAsInt());
+            } catch (RuntimeException e) {
+              // an exception escaping here closes the channel and requeues the message onto the next one
+              System.err.println("❌ Failed to process message: " + message + ": " + e.getMessage());
+              channel.basicReject(deliveryTag, false);
+              return;
+            }
             System.out.println(Thread.currentThread().getName() + " Received: " + message);
-            channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+            channel.basicAck(deliveryTag, false);
           };
 
           channel.basicConsume(QUEUE_NAME, false, deliverCallback, consumerTag -> {});
@@ -49,4 +67,31 @@ public class SkierConsumer {
       Thread.sleep(60000);
     }
   }
+
+  static void recordRide(int resortID, int seasonID, int dayID, int skierID, int liftID) {
+    int vertical = liftID * 10;
+    if (skierDays.add(resortID, seasonID, dayID, skierID, vertical)) {
+      // first ride of this skier that day; the only case that allocates
+      resortDaySkiers.computeIfAbsent(SkierDayStore.pack(resortID, seasonID, dayID, 0), k -> new AtomicInteger())
+          .incrementAndGet();
+    }
+    skierSeasons.add(resortID, seasonID, 0, skierID, vertical);
+  }
+
+  static int getDayRides(int resortID, int seasonID, int dayID, int skierID) {
+    return skierDays.getRides(resortID, seasonID, dayID, skierID);
+  }
+
+  static int getDayVertical(int resortID, int seasonID, int dayID, int skierID) {
+    return skierDays.getVertical(resortID, seasonID, dayID, skierID);
+  }
+
+  static int getSeasonVertical(int resortID, int seasonID, int skierID) {
+    return skierSeasons.getVertical(resortID, seasonID, 0, skierID);
+  }
+
+  static int getUniqueSkiers(int resortID, int seasonID, int dayID) {
+    AtomicInteger skiers = resortDaySkiers.get(SkierDayStore.pack(resortID, seasonID, dayID, 0));
+    return skiers == null ? 0 : skiers.get();
+  }
 }
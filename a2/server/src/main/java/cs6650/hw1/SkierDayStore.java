@@ -0,0 +1,192 @@
+package cs6650.hw1;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ride count and vertical per (resort, season, day, skier), without boxing or per-entry objects.
+ *
+ * The four ids are packed into one long key (12 + 12 + 9 + 27 bits, so resortID and seasonID
+ * below 4096, dayID below 512, skierID below 2^27). Keys are spread over lock-striped
+ * open-addressing tables with linear probing; a slot is 16 bytes (long key, int rides, int
+ * vertical) in a ByteBuffer, on the Java heap or, with {@code offHeap}, in direct memory outside
+ * it. A stripe doubles when it is 70% full. Entries are never removed.
+ */
+public class SkierDayStore {
+  private static final int SLOT_BYTES = 16;
+  private static final int RIDES_OFFSET = 8;
+  private static final int VERTICAL_OFFSET = 12;
+  // key 0 marks an empty slot; packed keys are stored + 1
+  private static final long EMPTY = 0L;
+  // keeps a stripe's buffer under 2 GiB
+  private static final int MAX_STRIPE_CAPACITY = 1 << 26;
+
+  private final Stripe[] stripes;
+  private final int stripeShift;
+  private final int stripeMask;
+  private final boolean offHeap;
+
+  /**
+   * @param expectedEntries sizes the tables so this many entries fit without resizing
+   * @param stripes number of independently locked tables, rounded up to a power of two
+   */
+  public SkierDayStore(long expectedEntries, int stripes, boolean offHeap) {
+    int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+    this.stripes = new Stripe[stripeCount];
+    this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    this.stripeMask = stripeCount - 1;
+    this.offHeap = offHeap;
+    long perStripe = Math.max(16, (long) (expectedEntries / 0.7 / stripeCount) + 1);
+    int capacity = (int) Math.min(MAX_STRIPE_CAPACITY, Long.highestOneBit(perStripe - 1) << 1);
+    for (int i = 0; i < stripeCount; i++) {
+      this.stripes[i] = new Stripe(capacity);
+    }
+  }
+
+  /** Whether {@link #pack} accepts these ids. */
+  public static boolean inRange(int resortID, int seasonID, int dayID, int skierID) {
+    return (resortID | seasonID | dayID | skierID) >= 0 && resortID < 1 << 12 && seasonID < 1 << 12
+        && dayID < 1 << 9 && skierID < 1 << 27;
+  }
+
+  public static long pack(int resortID, int seasonID, int dayID, int skierID) {
+    if (!inRange(resortID, seasonID, dayID, skierID)) {
+      throw new IllegalArgumentException("ids out of range: resort=" + resortID + " season=" + seasonID
+          + " day=" + dayID + " skier=" + skierID);
+    }
+    return (long) resortID << 48 | (long) seasonID << 36 | (long) dayID << 27 | skierID;
+  }
+
+  /**
+   * Adds one ride with {@code vertical} metres.
+   *
+   * @return true if this was the first ride of that skier on that day
+   */
+  public boolean add(int resortID, int seasonID, int dayID, int skierID, int vertical) {
+    long key = pack(resortID, seasonID, dayID, skierID) + 1;
+    long hash = mix(key);
+    Stripe stripe = stripes[(int) (hash >>> stripeShift) & stripeMask];
+    synchronized (stripe) {
+      return stripe.add(key, (int) hash, vertical);
+    }
+  }
+
+  public int getRides(int resortID, int seasonID, int dayID, int skierID) {
+    return get(pack(resortID, seasonID, dayID, skierID) + 1, RIDES_OFFSET);
+  }
+
+  public int getVertical(int resortID, int seasonID, int dayID, int skierID) {
+    return get(pack(resortID, seasonID, dayID, skierID) + 1, VERTICAL_OFFSET);
+  }
+
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.size;
+      }
+    }
+    return size;
+  }
+
+  /** Bytes held by the slot tables (off the heap when offHeap is set). */
+  public long memoryBytes() {
+    long bytes = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        bytes += stripe.slots.capacity();
+      }
+    }
+    return bytes;
+  }
+
+  private int get(long key, int offset) {
+    long hash = mix(key);
+    Stripe stripe = stripes[(int) (hash >>> stripeShift) & stripeMask];
+    synchronized (stripe) {
+      int slot = stripe.find(key, (int) hash);
+      return slot < 0 ? 0 : stripe.slots.getInt(slot + offset);
+    }
+  }
+
+  /** MurmurHash3's 64-bit finalizer: the high bits pick the stripe, the low bits the slot. */
+  private static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    return key ^ (key >>> 33);
+  }
+
+  private final class Stripe {
+    ByteBuffer slots;
+    int mask;
+    int size;
+
+    Stripe(int capacity) {
+      allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+      slots = offHeap ? ByteBuffer.allocateDirect(capacity * SLOT_BYTES) : ByteBuffer.allocate(capacity * SLOT_BYTES);
+      mask = capacity - 1;
+    }
+
+    /** Byte offset of {@code key}'s slot, or -1. */
+    int find(long key, int hash) {
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        long k = slots.getLong(i * SLOT_BYTES);
+        if (k == key) {
+          return i * SLOT_BYTES;
+        }
+        if (k == EMPTY) {
+          return -1;
+        }
+      }
+    }
+
+    boolean add(long key, int hash, int vertical) {
+      for (int i = hash & mask; ; i = (i + 1) & mask) {
+        int offset = i * SLOT_BYTES;
+        long k = slots.getLong(offset);
+        if (k == key) {
+          slots.putInt(offset + RIDES_OFFSET, slots.getInt(offset + RIDES_OFFSET) + 1);
+          slots.putInt(offset + VERTICAL_OFFSET, slots.getInt(offset + VERTICAL_OFFSET) + vertical);
+          return false;
+        }
+        if (k == EMPTY) {
+          if (size == mask) {
+            // the last empty slot is what ends every probe
+            throw new IllegalStateException("SkierDayStore stripe is full; use more stripes");
+          }
+          slots.putLong(offset, key);
+          slots.putInt(offset + RIDES_OFFSET, 1);
+          slots.putInt(offset + VERTICAL_OFFSET, vertical);
+          if (++size > (mask + 1) * 7L / 10) {
+            grow();
+          }
+          return true;
+        }
+      }
+    }
+
+    private void grow() {
+      if (mask + 1 >= MAX_STRIPE_CAPACITY) {
+        return;
+      }
+      ByteBuffer old = slots;
+      allocate((mask + 1) * 2);
+      for (int offset = 0; offset < old.capacity(); offset += SLOT_BYTES) {
+        long key = old.getLong(offset);
+        if (key == EMPTY) {
+          continue;
+        }
+        int i = (int) mix(key) & mask;
+        while (slots.getLong(i * SLOT_BYTES) != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        slots.putLong(i * SLOT_BYTES, key);
+        slots.putLong(i * SLOT_BYTES + RIDES_OFFSET, old.getLong(offset + RIDES_OFFSET));
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package cs6650.hw1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares {@link SkierDayStore} (heap and off-heap) against the ConcurrentHashMap approach the
+ * consumer used before: retained memory for N skier-days and update throughput, where every
+ * skier-day gets {@code bench.ridesPerDay} rides spread over {@code bench.threads} threads.
+ *
+ * Usage: java -Xmx3g -Dbench.skierDays=10000000 -Dbench.ridesPerDay=2 -Dbench.threads=4
+ *   cs6650.hw1.SkierDayStoreBenchmark
+ */
+public class SkierDayStoreBenchmark {
+
+  interface Store {
+    void add(int resortID, int seasonID, int dayID, int skierID, int vertical);
+  }
+
+  public static void main(String[] args) throws Exception {
+    int skierDays = Integer.getInteger("bench.skierDays", 10_000_000);
+    int ridesPerDay = Integer.getInteger("bench.ridesPerDay", 2);
+    int threads = Integer.getInteger("bench.threads", 4);
+    System.out.printf("%,d skier-days, %d rides each, %d threads\n", skierDays, ridesPerDay, threads);
+
+    // the old shape: boxed key and value, one node per entry, count and vertical packed in a Long
+    long before = usedHeap();
+    ConcurrentHashMap<Long, Long> map = new ConcurrentHashMap<>();
+    long nanos = run(skierDays, ridesPerDay, threads, (resort, season, day, skier, vertical) ->
+        map.merge(SkierDayStore.pack(resort, season, day, skier), 1L << 32 | vertical, Long::sum));
+    report("ConcurrentHashMap<Long,Long>", map.size(), usedHeap() - before, 0, skierDays, ridesPerDay, nanos);
+    map.clear();
+
+    for (boolean offHeap : new boolean[] {false, true}) {
+      before = usedHeap();
+      // sized for a tenth of the entries, so the benchmark includes resizing
+      SkierDayStore store = new SkierDayStore(skierDays / 10, 64, offHeap);
+      nanos = run(skierDays, ridesPerDay, threads, store::add);
+      report(offHeap ? "SkierDayStore (off-heap)" : "SkierDayStore (heap)", store.size(),
+          usedHeap() - before, offHeap ? store.memoryBytes() : 0, skierDays, ridesPerDay, nanos);
+      if (store.getRides(1, 2025, 1, 0) != ridesPerDay) {
+        throw new IllegalStateException("wrong ride count " + store.getRides(1, 2025, 1, 0));
+      }
+    }
+  }
+
+  /** Skier-day i is resort i % 10, day 1 + (i / 10) % 100, skier i / 1000; vertical 10 per lift. */
+  private static long run(int skierDays, int ridesPerDay, int threads, Store store) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      int from = (int) ((long) skierDays * t / threads);
+      int to = (int) ((long) skierDays * (t + 1) / threads);
+      futures.add(pool.submit(() -> {
+        for (int ride = 0; ride < ridesPerDay; ride++) {
+          for (int i = from; i < to; i++) {
+            store.add(i % 10, 2025, 1 + (i / 10) % 100, i / 1000, 10 * (1 + (i + ride) % 40));
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long nanos = System.nanoTime() - start;
+    pool.shutdown();
+    return nanos;
+  }
+
+  private static void report(String name, long entries, long heapBytes, long offHeapBytes,
+      int skierDays, int ridesPerDay, long nanos) {
+    double updates = (double) skierDays * ridesPerDay;
+    System.out.printf("%-30s %,11d entries  heap %,6d MB (%5.1f B/entry)  off-heap %,6d MB  %,6.1f M updates/s\n",
+        name, entries, heapBytes >> 20, (double) heapBytes / entries, offHeapBytes >> 20, updates / (nanos / 1e3));
+  }
+
+  private static long usedHeap() throws InterruptedException {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+      Thread.sleep(100);
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -90,6 +90,11 @@ public class SkierServlet extends HttpServlet {
         sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Skier ID mismatch between URL and payload.");
         return;
       }
+      // the consumer's stores pack the ids into one long key
+      if (!SkierDayStore.inRange(resortID, seasonID, dayID, jsonSkierID)) {
+        sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "ID out of range.");
+        return;
+      }
 
       int liftID = json.get("liftID").getAsInt();
       int time = json.get("time").getAsInt();
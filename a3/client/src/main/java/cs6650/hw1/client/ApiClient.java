@@ -2,31 +2,88 @@ package cs6650.hw1.client;
 
 import okhttp3.*;
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 
+/**
+ * Shared HTTP client for the load tester.
+ *
+ * Connection tuning (system properties):
+ *   apiclient.baseUrl             server base URL (default: the deployed EC2 server)
+ *   apiclient.protocol            http1 (default) or h2c: HTTP/2 over cleartext with prior knowledge
+ *   apiclient.maxIdleConnections  pooled keep-alive connections (default: the expected concurrency)
+ *   apiclient.keepAliveSeconds    how long an idle pooled connection is kept (default 300)
+ *   apiclient.maxInFlightPerHost  async calls beyond this wait in OkHttp's dispatcher queue (default 64)
+ */
 public class ApiClient {
-  private static final String BASE_URL = "http://44.232.3.127:8080/SkiLiftServer-1.0-SNAPSHOT";
+  private static final String BASE_URL = System.getProperty("apiclient.baseUrl",
+      "http://44.232.3.127:8080/SkiLiftServer-1.0-SNAPSHOT");
+  private static final MediaType JSON = MediaType.parse("application/json");
+  private static final int MAX_IN_FLIGHT_PER_HOST = Integer.getInteger("apiclient.maxInFlightPerHost", 64);
+  private static final String PROTOCOL = System.getProperty("apiclient.protocol", "http1");
+  private static final long KEEP_ALIVE_SECONDS = Long.getLong("apiclient.keepAliveSeconds", 300L);
+  private static final int DEFAULT_CONCURRENCY = 50;
+
   private static ApiClient instance;
   private final OkHttpClient httpClient;
+  private final ConnectionStats connectionStats = new ConnectionStats();
   private final Gson gson;
+  private final RetryPolicy retryPolicy = RetryPolicy.fromSystemProperties();
+  // Schedules async retries so no thread sleeps between attempts
+  private final ScheduledExecutorService retryScheduler;
+
+  private ApiClient(int expectedConcurrency) {
+    Dispatcher dispatcher = new Dispatcher();
+    dispatcher.setMaxRequests(Math.max(MAX_IN_FLIGHT_PER_HOST, 64));
+    dispatcher.setMaxRequestsPerHost(MAX_IN_FLIGHT_PER_HOST);
+
+    // keep one idle connection per concurrent caller so no request has to pay for a new connect
+    int maxIdleConnections = Integer.getInteger("apiclient.maxIdleConnections",
+        Math.max(expectedConcurrency, MAX_IN_FLIGHT_PER_HOST));
+    List<Protocol> protocols = "h2c".equalsIgnoreCase(PROTOCOL)
+        ? Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE)
+        : Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    System.out.printf("ApiClient: %s, protocol %s, %d pooled connections kept alive %ds\n",
+        BASE_URL, PROTOCOL, maxIdleConnections, KEEP_ALIVE_SECONDS);
 
-  private ApiClient() {
     this.httpClient = new OkHttpClient.Builder()
-        .connectionPool(new ConnectionPool(50, 5, TimeUnit.MINUTES))
+        .dispatcher(dispatcher)
+        .connectionPool(new ConnectionPool(maxIdleConnections, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS))
+        .protocols(protocols)
+        .eventListener(connectionStats)
         .connectTimeout(30, TimeUnit.SECONDS)
         .readTimeout(30, TimeUnit.SECONDS)
         .writeTimeout(30, TimeUnit.SECONDS)
         .retryOnConnectionFailure(true)
         .build();
     this.gson = new Gson();
+    this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "api-retry");
+      t.setDaemon(true);
+      return t;
+    });
 
     Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
   }
 
   public static synchronized ApiClient getInstance() {
+    return getInstance(DEFAULT_CONCURRENCY);
+  }
+
+  /**
+   * @param expectedConcurrency most requests the caller will have in flight at once; sizes the
+   *                            connection pool unless apiclient.maxIdleConnections is set. Only the
+   *                            first call creates the client.
+   */
+  public static synchronized ApiClient getInstance(int expectedConcurrency) {
     if (instance == null) {
-      instance = new ApiClient();
+      instance = new ApiClient(expectedConcurrency);
     }
     return instance;
   }
@@ -41,7 +98,7 @@ public class ApiClient {
 
     try (Response response = httpClient.newCall(request).execute()) {
       if (!response.isSuccessful()) {
-        throw new IOException("Unexpected code " + response.code());
+        throw new ApiException("Unexpected code " + response.code(), response.code());
       }
       ResponseBody body = response.body();
       return body != null ? body.string() : "";
@@ -50,40 +107,129 @@ public class ApiClient {
 
   public String sendPostRequest(String endpoint, Object data) throws IOException {
     String json = gson.toJson(data);
-    RequestBody body = RequestBody.create(MediaType.parse("application/json"), json);
+    RequestBody body = RequestBody.create(JSON, json);
     HttpUrl url = buildUrl(endpoint);
+    Request request = new Request.Builder()
+        .url(url)
+        .post(body)
+        .build();
 
-    int maxRetries = 3;
-    int attempt = 0;
+    retryPolicy.onRequest();
+    for (int attempt = 1; ; attempt++) {
+      int statusCode;
+      IOException error = null;
+      try (Response response = httpClient.newCall(request).execute()) {
+        if (response.isSuccessful()) {
+          ResponseBody responseBody = response.body();
+          return responseBody != null ? responseBody.string() : "";
+        }
+        statusCode = response.code();
+        System.err.println("[POST] Attempt " + attempt + " failed with response: " + statusCode);
+      } catch (IOException e) {
+        statusCode = RetryPolicy.IO_ERROR;
+        error = e;
+        System.err.println("[POST] Attempt " + attempt + " failed: " + e.getMessage());
+      }
 
-    while (attempt < maxRetries) {
-      attempt++;
+      if (!retryPolicy.shouldRetry(attempt, statusCode)) {
+        throw new ApiException("POST request failed after " + attempt + " attempt(s)", statusCode, error);
+      }
       try {
-        Request request = new Request.Builder()
-            .url(url)
-            .post(body)
-            .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-          if (response.isSuccessful()) {
-            ResponseBody responseBody = response.body();
-            return responseBody != null ? responseBody.string() : "";
+        Thread.sleep(retryPolicy.backoffMillis(attempt));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ApiException("POST request interrupted", statusCode, e);
+      }
+    }
+  }
+
+  /**
+   * POSTs many rides in one request to the batch endpoint (e.g. "skiers/batch") and returns the
+   * server's per-item statuses, in request order (201 accepted, 400 rejected). The whole batch
+   * is retried under the usual {@link RetryPolicy} if the request itself fails.
+   */
+  public int[] sendBatchPostRequest(String endpoint, List<?> items) throws IOException {
+    String body = sendPostRequest(endpoint, items);
+    try {
+      JsonArray statuses = gson.fromJson(body, JsonObject.class).getAsJsonArray("statuses");
+      int[] result = new int[statuses.size()];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = statuses.get(i).getAsInt();
+      }
+      return result;
+    } catch (JsonParseException | NullPointerException | ClassCastException | IllegalStateException e) {
+      throw new IOException("Unexpected batch response: " + body, e);
+    }
+  }
+
+  /**
+   * Non-blocking POST: the body is serialized before this returns (so {@code data} may be reused
+   * right away) and the call runs on OkHttp's dispatcher. Failed attempts are retried as the
+   * {@link RetryPolicy} allows, each after a scheduled backoff rather than a sleep. The future
+   * completes with the response body, or with an {@link ApiException} once no retry is allowed.
+   */
+  public CompletableFuture<String> sendPostRequestAsync(String endpoint, Object data) {
+    CompletableFuture<String> result = new CompletableFuture<>();
+    try {
+      Request request = new Request.Builder()
+          .url(buildUrl(endpoint))
+          .post(RequestBody.create(JSON, gson.toJson(data)))
+          .build();
+      retryPolicy.onRequest();
+      attemptAsync(request, 1, result);
+    } catch (IOException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private void attemptAsync(Request request, int attempt, CompletableFuture<String> result) {
+    httpClient.newCall(request).enqueue(new Callback() {
+      @Override
+      public void onFailure(Call call, IOException e) {
+        System.err.println("[POST] Attempt " + attempt + " failed: " + e.getMessage());
+        retryOrFail(request, attempt, RetryPolicy.IO_ERROR, e, result);
+      }
+
+      @Override
+      public void onResponse(Call call, Response response) {
+        try (Response r = response) {
+          if (r.isSuccessful()) {
+            ResponseBody responseBody = r.body();
+            result.complete(responseBody != null ? responseBody.string() : "");
           } else {
-            System.err.println("[POST] Attempt " + attempt + " failed with response: " + response.code());
+            System.err.println("[POST] Attempt " + attempt + " failed with response: " + r.code());
+            retryOrFail(request, attempt, r.code(), null, result);
           }
+        } catch (IOException e) {
+          System.err.println("[POST] Attempt " + attempt + " failed: " + e.getMessage());
+          retryOrFail(request, attempt, RetryPolicy.IO_ERROR, e, result);
         }
-      } catch (IOException e) {
-        System.err.println("[POST] Attempt " + attempt + " failed: " + e.getMessage());
       }
+    });
+  }
 
-      if (attempt < maxRetries) {
-        try {
-          Thread.sleep(500);
-        } catch (InterruptedException ignored) {}
-      }
+  private void retryOrFail(Request request, int attempt, int statusCode, IOException error,
+      CompletableFuture<String> result) {
+    if (!retryPolicy.shouldRetry(attempt, statusCode)) {
+      result.completeExceptionally(
+          new ApiException("POST request failed after " + attempt + " attempt(s)", statusCode, error));
+      return;
     }
+    try {
+      retryScheduler.schedule(() -> attemptAsync(request, attempt + 1, result),
+          retryPolicy.backoffMillis(attempt), TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(new ApiException("POST request abandoned: client is shut down", statusCode, e));
+    }
+  }
+
+  public ConnectionStats getConnectionStats() {
+    return connectionStats;
+  }
 
-    throw new IOException("POST request failed after " + maxRetries + " attempts");
+  public RetryPolicy getRetryPolicy() {
+    return retryPolicy;
   }
 
   private HttpUrl buildUrl(String endpoint) throws IOException {
@@ -98,6 +244,7 @@ public class ApiClient {
   public void shutdown() {
     System.out.println("Initiating graceful shutdown...");
 
+    retryScheduler.shutdownNow();
     httpClient.dispatcher().cancelAll();
     httpClient.dispatcher().executorService().shutdown();
     try {
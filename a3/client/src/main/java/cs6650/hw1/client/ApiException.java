@@ -0,0 +1,27 @@
+package cs6650.hw1.client;
+
+import java.io.IOException;
+
+/**
+ * A request that failed for good: carries the last HTTP status, or {@link RetryPolicy#IO_ERROR}
+ * when no response was received.
+ */
+public class ApiException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  private final int statusCode;
+
+  public ApiException(String message, int statusCode) {
+    super(message);
+    this.statusCode = statusCode;
+  }
+
+  public ApiException(String message, int statusCode, Throwable cause) {
+    super(message, cause);
+    this.statusCode = statusCode;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+}
@@ -0,0 +1,60 @@
+package cs6650.hw1.client;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OkHttp {@link EventListener} that counts how often a call got a pooled connection versus paid
+ * for a new TCP (and TLS) connect, and which protocol the connections speak.
+ */
+public class ConnectionStats extends EventListener {
+  private final LongAdder acquired = new LongAdder();
+  private final LongAdder connected = new LongAdder();
+  private final LongAdder connectFailed = new LongAdder();
+  private volatile Protocol lastProtocol;
+
+  @Override
+  public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+    connected.increment();
+    if (protocol != null) {
+      lastProtocol = protocol;
+    }
+  }
+
+  @Override
+  public void connectFailed(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol,
+      IOException ioe) {
+    connectFailed.increment();
+  }
+
+  @Override
+  public void connectionAcquired(Call call, Connection connection) {
+    acquired.increment();
+    lastProtocol = connection.protocol();
+  }
+
+  public long getNewConnections() {
+    return connected.sum();
+  }
+
+  /** Connection acquisitions served from the pool (or an existing HTTP/2 connection). */
+  public long getReusedConnections() {
+    return Math.max(0, acquired.sum() - connected.sum());
+  }
+
+  @Override
+  public String toString() {
+    long reused = getReusedConnections();
+    long total = acquired.sum();
+    return String.format("%,d new, %,d reused (%.1f%% reuse), %,d failed connects, protocol %s",
+        getNewConnections(), reused, total == 0 ? 0.0 : 100.0 * reused / total, connectFailed.sum(),
+        lastProtocol == null ? "-" : lastProtocol);
+  }
+}
@@ -0,0 +1,102 @@
+package cs6650.hw1.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Isolates the event source from the network: N consumer threads drain the phase's events as
+ * fast as they can, once from a pre-filled LinkedBlockingQueue of SkierEvent objects (the old
+ * generateSkierEvents path, generation time included) and once from an {@link EventRing} filled
+ * concurrently by its generator thread.
+ *
+ * Usage: -Dbench.events=2000000 -Dbench.consumers=64 -Dbench.rounds=3
+ */
+public class EventGeneratorBenchmark {
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  public static void main(String[] args) throws Exception {
+    int events = Integer.getInteger("bench.events", 2_000_000);
+    int consumers = Integer.getInteger("bench.consumers", 64);
+    int rounds = Integer.getInteger("bench.rounds", 3);
+
+    for (int round = 1; round <= rounds; round++) {
+      System.out.printf("--- round %d: %,d events, %d consumers ---\n", round, events, consumers);
+      runQueue(events, consumers);
+      runRing(events, consumers);
+    }
+  }
+
+  private static void runQueue(int events, int consumers) throws InterruptedException {
+    AtomicLong allocated = new AtomicLong();
+    long start = System.nanoTime();
+    long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    BlockingQueue<SkierEvent> queue = new LinkedBlockingQueue<>(events);
+    for (int i = 0; i < events; i++) {
+      queue.add(new SkierEvent());
+    }
+    allocated.addAndGet(THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+    long generatedNanos = System.nanoTime() - start;
+
+    runConsumers(consumers, allocated, () -> {
+      long sum = 0;
+      SkierEvent event;
+      try {
+        while ((event = queue.poll(5, TimeUnit.MILLISECONDS)) != null) {
+          sum += event.getSkierID();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return sum;
+    });
+    report("LinkedBlockingQueue", events, System.nanoTime() - start, generatedNanos, allocated.get());
+  }
+
+  private static void runRing(int events, int consumers) throws InterruptedException {
+    AtomicLong allocated = new AtomicLong();
+    long start = System.nanoTime();
+    EventRing ring = new EventRing(8192, events, WorkloadModel.fromSystemProperties(), 1).start();
+    runConsumers(consumers, allocated, () -> {
+      long sum = 0;
+      SkierEvent event = new SkierEvent();
+      while (ring.take(event)) {
+        sum += event.getSkierID();
+      }
+      return sum;
+    });
+    report("EventRing", events, System.nanoTime() - start, 0, allocated.get());
+  }
+
+  interface Drain {
+    long drain();
+  }
+
+  private static void runConsumers(int consumers, AtomicLong allocated, Drain drain)
+      throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(consumers);
+    AtomicLong checksum = new AtomicLong();
+    for (int i = 0; i < consumers; i++) {
+      new Thread(() -> {
+        long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        checksum.addAndGet(drain.drain());
+        allocated.addAndGet(THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before);
+        done.countDown();
+      }).start();
+    }
+    done.await();
+    if (checksum.get() == 0) {
+      System.out.println("(empty run)");
+    }
+  }
+
+  private static void report(String name, int events, long elapsedNanos, long generatedNanos, long allocatedBytes) {
+    double seconds = elapsedNanos / 1e9;
+    System.out.printf("%-20s %,12.0f events/sec, first event after %6.1f ms, %6.1f B/event\n",
+        name, events / seconds, generatedNanos / 1e6, (double) allocatedBytes / events);
+  }
+}
@@ -0,0 +1,112 @@
+package cs6650.hw1.client;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded ring of skier events, generated from one {@link WorkloadModel} stream by a background
+ * thread while the phase is running and taken by any number of client threads.
+ *
+ * Events live in a preallocated int[] (6 ints per slot) and are copied into the caller's reusable
+ * {@link SkierEvent}, so neither side allocates or locks. Hand-off follows Vyukov's bounded queue:
+ * each slot has a sequence number that says whether it is ready to be filled (== position) or
+ * ready to be taken (== position + 1); consumers claim positions with a CAS.
+ */
+public class EventRing {
+  private static final int FIELDS = 6;
+  private static final int SPINS_BEFORE_YIELD = 64;
+  private static final long MAX_PARK_NANOS = 200_000;
+
+  private final int capacity;
+  private final int mask;
+  private final int[] events;
+  private final AtomicLongArray sequences;
+  private final AtomicLong takePosition = new AtomicLong();
+  private final long total;
+  private final WorkloadModel workload;
+  private final long streamId;
+
+  /**
+   * @param capacity slots in the ring, rounded up to a power of two
+   * @param total    number of events to generate before the ring reports exhaustion
+   * @param workload distribution of the generated events
+   * @param streamId which of the workload's random streams to draw from (e.g. the phase number)
+   */
+  public EventRing(int capacity, long total, WorkloadModel workload, long streamId) {
+    this.capacity = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+    this.mask = this.capacity - 1;
+    this.events = new int[this.capacity * FIELDS];
+    this.sequences = new AtomicLongArray(this.capacity);
+    for (int i = 0; i < this.capacity; i++) {
+      sequences.set(i, i);
+    }
+    this.total = total;
+    this.workload = workload;
+    this.streamId = streamId;
+  }
+
+  /** Starts the generator thread and returns this ring; the phase can start taking immediately. */
+  public EventRing start() {
+    Thread producer = new Thread(this::produce, "event-generator");
+    producer.setDaemon(true);
+    producer.start();
+    return this;
+  }
+
+  private void produce() {
+    SplittableRandom random = workload.stream(streamId);
+    for (long position = 0; position < total; position++) {
+      int slot = (int) position & mask;
+      for (int spins = 0; sequences.get(slot) != position; spins++) {
+        // ring full: wait for a consumer to free this slot
+        idle(spins);
+      }
+      workload.next(random, events, slot * FIELDS);
+      sequences.lazySet(slot, position + 1);
+    }
+  }
+
+  /**
+   * Copies the next event into {@code into}, waiting for the generator if it is behind.
+   *
+   * @return false once all {@code total} events have been taken
+   */
+  public boolean take(SkierEvent into) {
+    int spins = 0;
+    while (true) {
+      long position = takePosition.get();
+      if (position >= total) {
+        return false;
+      }
+      int slot = (int) position & mask;
+      long ready = sequences.get(slot) - (position + 1);
+      if (ready == 0) {
+        if (takePosition.compareAndSet(position, position + 1)) {
+          int base = slot * FIELDS;
+          into.set(events[base], events[base + 1], events[base + 2],
+              events[base + 3], events[base + 4], events[base + 5]);
+          sequences.lazySet(slot, position + capacity);
+          return true;
+        }
+      } else if (ready < 0) {
+        // generator has not filled this slot yet
+        idle(spins++);
+      }
+    }
+  }
+
+  /** Spin briefly, then yield, then park with exponential backoff so waiters leave the CPU to others. */
+  private static void idle(int spins) {
+    if (spins < SPINS_BEFORE_YIELD) {
+      return;
+    }
+    if (spins < 2 * SPINS_BEFORE_YIELD) {
+      Thread.yield();
+      return;
+    }
+    int doublings = Math.min(spins - 2 * SPINS_BEFORE_YIELD, 20);
+    LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1_000L << doublings));
+  }
+}
@@ -0,0 +1,145 @@
+package cs6650.hw1.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory, high-dynamic-range latency histogram in the style of HdrHistogram.
+ *
+ * Values are microseconds. Values below 128 get their own bucket; above that every power of two is
+ * split into 64 linear sub-buckets, so any recorded value is reported within 1/64 (~1.6%) of its
+ * true value, from 1 us up to {@link #MAX_VALUE} (about 19 hours; larger values are clamped).
+ * Recording is a few atomic updates with no allocation and may be done from any thread.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;      // 128
+  private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;       // 64
+  private static final int MAX_MAGNITUDE = 36;
+  public static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+  private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong totalCount = new AtomicLong();
+  private final AtomicLong sum = new AtomicLong();
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long micros) {
+    long value = Math.max(0, Math.min(micros, MAX_VALUE));
+    counts.incrementAndGet(indexOf(value));
+    totalCount.incrementAndGet();
+    sum.addAndGet(value);
+    long current;
+    while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+      // retry
+    }
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+      // retry
+    }
+  }
+
+  /** Adds all of {@code other}'s recordings into this histogram. */
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long c = other.counts.get(i);
+      if (c != 0) {
+        counts.addAndGet(i, c);
+      }
+    }
+    totalCount.addAndGet(other.totalCount.get());
+    sum.addAndGet(other.sum.get());
+    long otherMin = other.min.get();
+    long current;
+    while (otherMin < (current = min.get()) && !min.compareAndSet(current, otherMin)) {
+      // retry
+    }
+    long otherMax = other.max.get();
+    while (otherMax > (current = max.get()) && !max.compareAndSet(current, otherMax)) {
+      // retry
+    }
+  }
+
+  /** Copies the bucket counts into {@code target} (length {@link #bucketCount()}) without allocating. */
+  public void copyCounts(long[] target) {
+    for (int i = 0; i < BUCKETS; i++) {
+      target[i] = counts.get(i);
+    }
+  }
+
+  public long getCount() {
+    return totalCount.get();
+  }
+
+  public double getMean() {
+    long n = totalCount.get();
+    return n == 0 ? 0 : (double) sum.get() / n;
+  }
+
+  public long getMin() {
+    return totalCount.get() == 0 ? 0 : min.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @param percentile in [0, 100]
+   * @return the (upper bound of the bucket holding the) value at that percentile, in micros
+   */
+  public long getValueAtPercentile(double percentile) {
+    long n = totalCount.get();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(highestEquivalentValue(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  public static int bucketCount() {
+    return BUCKETS;
+  }
+
+  /** Value at a percentile of raw bucket counts, e.g. the difference of two {@link #copyCounts} snapshots. */
+  public static long valueAtPercentile(long[] bucketCounts, long total, double percentile) {
+    if (total <= 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      seen += bucketCounts[i];
+      if (seen >= rank) {
+        return highestEquivalentValue(i);
+      }
+    }
+    return highestEquivalentValue(bucketCounts.length - 1);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);   // >= SUB_BUCKET_BITS
+    int shift = magnitude - (SUB_BUCKET_BITS - 1);             // value >> shift is in [64, 128)
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + (int) ((value >> shift) - SUB_BUCKET_HALF);
+  }
+
+  static long highestEquivalentValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int j = index - SUB_BUCKET_COUNT;
+    int shift = j / SUB_BUCKET_HALF + 1;
+    long lowest = (long) (j % SUB_BUCKET_HALF + SUB_BUCKET_HALF) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
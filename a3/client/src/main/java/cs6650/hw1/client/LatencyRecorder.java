@@ -0,0 +1,53 @@
+package cs6650.hw1.client;
+
+import java.util.Arrays;
+
+/**
+ * Striped {@link LatencyHistogram} for the request path: each thread records into the stripe picked
+ * by its thread id, so client threads rarely touch the same cache lines. Stripes are merged only
+ * when a {@link #snapshot()} is taken (e.g. at the end of a phase).
+ */
+public class LatencyRecorder {
+  private final LatencyHistogram[] stripes;
+  private final int mask;
+
+  public LatencyRecorder() {
+    this(Runtime.getRuntime().availableProcessors() * 2);
+  }
+
+  public LatencyRecorder(int minStripes) {
+    int n = Integer.highestOneBit(Math.max(1, Math.min(minStripes, 64)) * 2 - 1);
+    stripes = new LatencyHistogram[n];
+    for (int i = 0; i < n; i++) {
+      stripes[i] = new LatencyHistogram();
+    }
+    mask = n - 1;
+  }
+
+  public void record(long micros) {
+    stripes[(int) Thread.currentThread().getId() & mask].record(micros);
+  }
+
+  /**
+   * Sums the stripes' bucket counts into {@code target} (length {@link LatencyHistogram#bucketCount()})
+   * without allocating; used for interval percentiles from the difference of two calls.
+   */
+  public void copyCounts(long[] target, long[] scratch) {
+    Arrays.fill(target, 0);
+    for (LatencyHistogram stripe : stripes) {
+      stripe.copyCounts(scratch);
+      for (int i = 0; i < target.length; i++) {
+        target[i] += scratch[i];
+      }
+    }
+  }
+
+  /** Merges every stripe into a new histogram. */
+  public LatencyHistogram snapshot() {
+    LatencyHistogram merged = new LatencyHistogram();
+    for (LatencyHistogram stripe : stripes) {
+      merged.add(stripe);
+    }
+    return merged;
+  }
+}
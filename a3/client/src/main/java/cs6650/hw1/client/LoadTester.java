@@ -2,11 +2,13 @@ package cs6650.hw1.client;
 
 import okhttp3.*;
 import com.google.gson.Gson;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Demonstrates a 2-phase load test:
@@ -17,48 +19,75 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Adjust numbers as needed to exactly match your assignment requirements.
  */
 public class LoadTester {
-  // Phase 1 constants
-  private static final int PHASE1_THREAD_COUNT = 32;
-  private static final int PHASE1_REQUESTS_PER_THREAD = 1000;
+  // Phase 1 constants (override with -Dloadtester.phase1Threads / -Dloadtester.phase1RequestsPerThread)
+  private static final int PHASE1_THREAD_COUNT = Integer.getInteger("loadtester.phase1Threads", 32);
+  private static final int PHASE1_REQUESTS_PER_THREAD = Integer.getInteger("loadtester.phase1RequestsPerThread", 1000);
   private static final int PHASE1_TOTAL_REQUESTS = PHASE1_THREAD_COUNT * PHASE1_REQUESTS_PER_THREAD; // 32k
 
-  // Phase 2 constants
-  private static final int PHASE2_THREAD_COUNT = 64;
-  private static final int PHASE2_REQUESTS_PER_THREAD = 2625;
+  // Phase 2 constants (override with -Dloadtester.phase2Threads / -Dloadtester.phase2RequestsPerThread)
+  private static final int PHASE2_THREAD_COUNT = Integer.getInteger("loadtester.phase2Threads", 64);
+  private static final int PHASE2_REQUESTS_PER_THREAD = Integer.getInteger("loadtester.phase2RequestsPerThread", 2625);
   private static final int PHASE2_TOTAL_REQUESTS = PHASE2_THREAD_COUNT * PHASE2_REQUESTS_PER_THREAD; // 168k
 
   // Overall sum => 200k
   private static final int TOTAL_REQUESTS = PHASE1_TOTAL_REQUESTS + PHASE2_TOTAL_REQUESTS;
 
-  // Base URL
-  private static final String BASE_URL = "http://44.232.3.127:8080/SkiLiftServer-1.0-SNAPSHOT";
-  private static final ApiClient apiClient = ApiClient.getInstance();
+  // Execution mode: -Dloadtester.mode=platform (one OS thread per simulated client, default),
+  // virtual (one virtual thread per client on JDK 21+, falls back to platform threads) or async
+  // (the main thread keeps up to <phase threads> non-blocking ApiClient calls in flight)
+  private static final String MODE = System.getProperty("loadtester.mode", "platform");
+  private static final boolean ASYNC = "async".equalsIgnoreCase(MODE);
+
+  // Load model: -Dloadtester.loop=closed (each client waits for its response, default) or open
+  // (requests are scheduled at a target rate, ramped up linearly, whether or not the server keeps up)
+  private static final boolean OPEN_LOOP = "open".equalsIgnoreCase(System.getProperty("loadtester.loop", "closed"));
+  private static final double PHASE1_TARGET_RPS = Double.parseDouble(System.getProperty("loadtester.phase1Rps", "1000"));
+  private static final double PHASE2_TARGET_RPS = Double.parseDouble(System.getProperty("loadtester.phase2Rps", "2000"));
+  private static final double RAMP_UP_SECONDS = Double.parseDouble(System.getProperty("loadtester.rampUpSeconds", "5"));
+
+  // the server URL comes from -Dapiclient.baseUrl (see ApiClient)
+  private static final ApiClient apiClient =
+      ApiClient.getInstance(Math.max(PHASE1_THREAD_COUNT, PHASE2_THREAD_COUNT));
 
   // Atomic counters
   private static final AtomicInteger successfulRequests = new AtomicInteger(0);
   private static final AtomicInteger failedRequests = new AtomicInteger(0);
 
-  // For collecting latencies
-  private static final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
-  // For storing all request stats
-  private static final List<RequestStat> requestStats = Collections.synchronizedList(new ArrayList<>());
-
-  static class RequestStat {
-    long startTime;
-    String requestType;
-    long latency;
-    int responseCode;
-
-    public RequestStat(long startTime, String requestType, long latency, int responseCode) {
-      this.startTime = startTime;
-      this.requestType = requestType;
-      this.latency = latency;
-      this.responseCode = responseCode;
-    }
-  }
+  // Latencies in microseconds: recorded per thread for the running phase, merged into the run-wide
+  // histogram when the phase ends
+  private static volatile LatencyRecorder phaseLatencies = new LatencyRecorder();
+  private static final LatencyHistogram latencies = new LatencyHistogram();
+  // Per-request results are streamed to a memory-mapped binary log (-Dloadtester.requestLog)
+  // and converted to load_test_results.csv after the run
+  private static final Path REQUEST_LOG_PATH = Paths.get(System.getProperty("loadtester.requestLog", "load_test_requests.bin"));
+  private static final String RESULTS_CSV = "load_test_results.csv";
+  private static RequestLog requestLog;
+  // Per-second RPS / errors / in-flight / interval p50-p99 (-Dloadtester.timeline, -Dloadtester.timelineConsole)
+  private static final Path TIMELINE_PATH = Paths.get(System.getProperty("loadtester.timeline", "load_test_timeline.csv"));
+  private static final boolean TIMELINE_CONSOLE = Boolean.parseBoolean(System.getProperty("loadtester.timelineConsole", "true"));
+  private static TimelineSampler timeline;
+
+  // Events are generated on a background thread into a ring of this many slots (-Dloadtester.eventRingCapacity)
+  private static final int EVENT_RING_CAPACITY = Integer.getInteger("loadtester.eventRingCapacity", 8192);
+  // Seeded, optionally skewed event distribution (see WorkloadModel for the -Dloadtester.* knobs)
+  private static final WorkloadModel WORKLOAD = WorkloadModel.fromSystemProperties();
+  // One reusable event per thread that sends requests from the open-loop dispatcher
+  private static final ThreadLocal<SkierEvent> OPEN_LOOP_EVENT = ThreadLocal.withInitial(SkierEvent::new);
+
+  // -Dloadtester.batchSize > 1: closed-loop threads POST this many rides per request to /skiers/batch
+  private static final int BATCH_SIZE = Integer.getInteger("loadtester.batchSize", 1);
+  private static final String BATCH_ENDPOINT = "skiers/batch";
 
-  public static void main(String[] args) throws InterruptedException {
+  public static void main(String[] args) throws InterruptedException, IOException {
+    requestLog = new RequestLog(REQUEST_LOG_PATH);
+    timeline = new TimelineSampler(TIMELINE_PATH, TIMELINE_CONSOLE);
     System.out.println("Total requests across all phases: " + TOTAL_REQUESTS);
+    System.out.println("Execution mode: " + MODE + (OPEN_LOOP ? ", open loop" : ", closed loop"));
+    System.out.println("Workload: " + WORKLOAD);
+    if (BATCH_SIZE > 1) {
+      System.out.println("Batching " + BATCH_SIZE + " rides per POST to /" + BATCH_ENDPOINT
+          + (OPEN_LOOP || ASYNC ? " (closed-loop threaded mode only; ignored)" : ""));
+    }
 
     long startTime = System.nanoTime();
 
@@ -66,18 +95,34 @@ public class LoadTester {
     // Phase 1
     // ---------------------
     System.out.println("=== Phase 1 ===");
-    BlockingQueue<SkierEvent> eventQueuePhase1 = generateSkierEvents(PHASE1_TOTAL_REQUESTS);
-    runPhase(PHASE1_THREAD_COUNT, PHASE1_REQUESTS_PER_THREAD, eventQueuePhase1, 1);
+    EventRing eventsPhase1 = new EventRing(EVENT_RING_CAPACITY, PHASE1_TOTAL_REQUESTS, WORKLOAD, 1).start();
+    if (OPEN_LOOP) {
+      runOpenLoopPhase(PHASE1_TOTAL_REQUESTS, PHASE1_TARGET_RPS, PHASE1_THREAD_COUNT, eventsPhase1, 1);
+    } else if (ASYNC) {
+      runAsyncPhase(PHASE1_TOTAL_REQUESTS, PHASE1_THREAD_COUNT, eventsPhase1, 1);
+    } else {
+      runPhase(PHASE1_THREAD_COUNT, PHASE1_REQUESTS_PER_THREAD, eventsPhase1, 1);
+    }
+    mergePhaseLatencies(1);
 
     // ---------------------
     // Phase 2
     // ---------------------
     System.out.println("=== Phase 2 ===");
-    BlockingQueue<SkierEvent> eventQueuePhase2 = generateSkierEvents(PHASE2_TOTAL_REQUESTS);
-    runPhase(PHASE2_THREAD_COUNT, PHASE2_REQUESTS_PER_THREAD, eventQueuePhase2, 2);
+    EventRing eventsPhase2 = new EventRing(EVENT_RING_CAPACITY, PHASE2_TOTAL_REQUESTS, WORKLOAD, 2).start();
+    if (OPEN_LOOP) {
+      runOpenLoopPhase(PHASE2_TOTAL_REQUESTS, PHASE2_TARGET_RPS, PHASE2_THREAD_COUNT, eventsPhase2, 2);
+    } else if (ASYNC) {
+      runAsyncPhase(PHASE2_TOTAL_REQUESTS, PHASE2_THREAD_COUNT, eventsPhase2, 2);
+    } else {
+      runPhase(PHASE2_THREAD_COUNT, PHASE2_REQUESTS_PER_THREAD, eventsPhase2, 2);
+    }
+    mergePhaseLatencies(2);
 
     // All phases done
     apiClient.shutdown();
+    timeline.close();
+    System.out.println("📈 Timeline saved to " + TIMELINE_PATH);
 
     // Calculate total time
     printStatistics(startTime);
@@ -85,30 +130,41 @@ public class LoadTester {
   }
 
   /**
-   * runPhase: Creates a fixed thread pool, each thread sends 'requestsPerThread' requests,
-   *           reading from eventQueue, then terminates.
+   * runPhase: Starts 'threadCount' simulated clients (platform or virtual threads), each sends
+   *           'requestsPerThread' requests, taking events from the ring, then terminates.
    */
   private static void runPhase(int threadCount, int requestsPerThread,
-      BlockingQueue<SkierEvent> eventQueue, int phaseId) throws InterruptedException {
+      EventRing events, int phaseId) throws InterruptedException {
     System.out.printf("Starting Phase %d with %d threads, each %d requests => %d total.\n",
         phaseId, threadCount, requestsPerThread, threadCount * requestsPerThread);
+    timeline.beginPhase(phaseId, phaseLatencies);
 
     CountDownLatch phaseLatch = new CountDownLatch(threadCount);
-    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    ExecutorService executor = newPhaseExecutor(threadCount);
 
     for (int i = 0; i < threadCount; i++) {
       executor.execute(() -> {
-        for (int r = 0; r < requestsPerThread; r++) {
-          SkierEvent event = null;
-          try {
-            event = eventQueue.poll(5, TimeUnit.SECONDS);
-            if (event == null) {
+        if (BATCH_SIZE > 1) {
+          SkierEvent[] batch = new SkierEvent[BATCH_SIZE];
+          for (int b = 0; b < BATCH_SIZE; b++) {
+            batch[b] = new SkierEvent();
+          }
+          int r = 0;
+          while (r < requestsPerThread) {
+            int n = 0;
+            while (n < BATCH_SIZE && r + n < requestsPerThread && events.take(batch[n])) {
+              n++;
+            }
+            if (n == 0) {
               break;
             }
+            sendBatchRequest(batch, n);
+            r += n;
+          }
+        } else {
+          SkierEvent event = new SkierEvent();
+          for (int r = 0; r < requestsPerThread && events.take(event); r++) {
             sendOneRequest(event);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            break;
           }
         }
         phaseLatch.countDown();
@@ -123,53 +179,229 @@ public class LoadTester {
   }
 
   /**
-   * sendOneRequest: sends exactly 1 POST request, with up to 5 retries on failure
+   * runAsyncPhase: closed loop without a thread per client: the calling thread keeps 'maxInFlight'
+   *                non-blocking POSTs outstanding, sending the next one as each completes.
+   */
+  private static void runAsyncPhase(int totalRequests, int maxInFlight, EventRing events, int phaseId)
+      throws InterruptedException {
+    System.out.printf("Starting async Phase %d: %d requests, %d in flight.\n", phaseId, totalRequests, maxInFlight);
+    timeline.beginPhase(phaseId, phaseLatencies);
+
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    CountDownLatch phaseLatch = new CountDownLatch(totalRequests);
+    // safe to reuse: the request body is serialized before sendPostRequestAsync returns
+    SkierEvent event = new SkierEvent();
+    int sent = 0;
+    while (sent < totalRequests && events.take(event)) {
+      inFlight.acquire();
+      sendOneRequestAsync(event, System.nanoTime()).whenComplete((ignored, error) -> {
+        inFlight.release();
+        phaseLatch.countDown();
+      });
+      sent++;
+    }
+    for (int i = sent; i < totalRequests; i++) {
+      phaseLatch.countDown();
+    }
+
+    phaseLatch.await();
+    System.out.printf("Phase %d done.\n", phaseId);
+  }
+
+  /**
+   * runOpenLoopPhase: sends 'totalRequests' requests on a fixed schedule: the rate ramps linearly
+   *                   from 0 to 'targetRps' over the ramp-up, then holds. Each request is handed to
+   *                   the phase executor at its intended time and its latency is measured from
+   *                   that time, so queueing behind a slow server counts (no coordinated omission).
+   */
+  private static void runOpenLoopPhase(int totalRequests, double targetRps, int threadCount,
+      EventRing events, int phaseId) throws InterruptedException {
+    System.out.printf("Starting open-loop Phase %d: %d requests at %.0f RPS (%.1fs ramp-up), %d threads.\n",
+        phaseId, totalRequests, targetRps, RAMP_UP_SECONDS, threadCount);
+    timeline.beginPhase(phaseId, phaseLatencies);
+
+    CountDownLatch phaseLatch = new CountDownLatch(totalRequests);
+    ExecutorService executor = newPhaseExecutor(threadCount);
+    long phaseStartNanos = System.nanoTime();
+    long maxLagNanos = 0;
+
+    int sent = 0;
+    for (; sent < totalRequests; sent++) {
+      long intendedNanos = phaseStartNanos + scheduledOffsetNanos(sent, targetRps, RAMP_UP_SECONDS);
+      long wait;
+      while ((wait = intendedNanos - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      maxLagNanos = Math.max(maxLagNanos, -wait);
+
+      if (ASYNC) {
+        SkierEvent event = OPEN_LOOP_EVENT.get();
+        if (events.take(event)) {
+          sendOneRequestAsync(event, intendedNanos).whenComplete((ignored, error) -> phaseLatch.countDown());
+        } else {
+          phaseLatch.countDown();
+        }
+        continue;
+      }
+      executor.execute(() -> {
+        SkierEvent event = OPEN_LOOP_EVENT.get();
+        if (events.take(event)) {
+          sendOneRequest(event, intendedNanos);
+        }
+        phaseLatch.countDown();
+      });
+    }
+    long dispatchNanos = System.nanoTime() - phaseStartNanos;
+
+    phaseLatch.await();
+    long elapsedNanos = System.nanoTime() - phaseStartNanos;
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+
+    double scheduledSeconds = scheduledOffsetNanos(Math.max(0, sent - 1), targetRps, RAMP_UP_SECONDS) / 1e9;
+    System.out.printf("Phase %d done. Target %.0f RPS; scheduled %.1fs, dispatched in %.1fs (max lag %d ms), "
+            + "completed in %.1fs => achieved %.0f RPS.\n",
+        phaseId, targetRps, scheduledSeconds, dispatchNanos / 1e9, maxLagNanos / 1_000_000,
+        elapsedNanos / 1e9, sent / (elapsedNanos / 1e9));
+  }
+
+  /**
+   * scheduledOffsetNanos: intended send time of request i. During the ramp the rate grows as
+   *                       targetRps * t / rampUp, so i requests are due by t = sqrt(2 * rampUp * i / targetRps).
+   */
+  static long scheduledOffsetNanos(int i, double targetRps, double rampUpSeconds) {
+    double rampRequests = targetRps * rampUpSeconds / 2;
+    double seconds = i < rampRequests
+        ? Math.sqrt(2 * rampUpSeconds * i / targetRps)
+        : rampUpSeconds + (i - rampRequests) / targetRps;
+    return (long) (seconds * 1e9);
+  }
+
+  /**
+   * newPhaseExecutor: one virtual thread per task when -Dloadtester.mode=virtual and the JDK has
+   *                   them (looked up reflectively so the client still builds for Java 8),
+   *                   otherwise a fixed pool of platform threads.
+   */
+  private static ExecutorService newPhaseExecutor(int threadCount) {
+    if ("virtual".equalsIgnoreCase(MODE)) {
+      try {
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException e) {
+        System.err.println("Virtual threads need JDK 21+ (running " + System.getProperty("java.version")
+            + "), falling back to platform threads.");
+      }
+    }
+    return Executors.newFixedThreadPool(threadCount);
+  }
+
+  /**
+   * sendOneRequest: sends exactly 1 POST request (ApiClient applies the retry policy)
    */
   private static void sendOneRequest(SkierEvent event) {
-    long requestStartTime = System.currentTimeMillis();
+    sendOneRequest(event, System.nanoTime());
+  }
+
+  /**
+   * sendOneRequest: as above, with latency measured from 'requestStartNanos' (the intended send
+   *                 time in open-loop mode, which may be earlier than now)
+   */
+  private static void sendOneRequest(SkierEvent event, long requestStartNanos) {
     int responseCode = 0;
     boolean success = false;
+    timeline.requestStarted();
 
     // example endpoint: /skiers/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}
     String endpoint = String.format("skiers/%d/seasons/%d/days/%d/skiers/%d",
         event.getResortID(), event.getSeasonID(), event.getDayID(), event.getSkierID());
 
-    for (int retry = 0; retry < 5 && !success; retry++) {
-      try {
-        apiClient.sendPostRequest(endpoint, event);
-        responseCode = 201;
+    // retries (backoff, budget, no retry on 4xx) are ApiClient's job
+    try {
+      apiClient.sendPostRequest(endpoint, event);
+      responseCode = 201;
+      successfulRequests.incrementAndGet();
+      success = true;
+    } catch (IOException e) {
+      responseCode = statusOf(e);
+      failedRequests.incrementAndGet();
+    }
+
+    recordResult(requestStartNanos, success, responseCode);
+  }
+
+  /**
+   * sendBatchRequest: POSTs the first 'n' events as one batch; every ride in it is recorded with
+   *                   the batch's latency and its own per-item status.
+   */
+  private static void sendBatchRequest(SkierEvent[] batch, int n) {
+    long requestStartNanos = System.nanoTime();
+    for (int i = 0; i < n; i++) {
+      timeline.requestStarted();
+    }
+
+    int[] statuses = null;
+    int failureStatus = 0;
+    try {
+      statuses = apiClient.sendBatchPostRequest(BATCH_ENDPOINT, Arrays.asList(batch).subList(0, n));
+    } catch (IOException e) {
+      failureStatus = statusOf(e);
+    }
+
+    for (int i = 0; i < n; i++) {
+      int responseCode = statuses == null ? failureStatus : i < statuses.length ? statuses[i] : 500;
+      boolean success = responseCode == 201;
+      if (success) {
         successfulRequests.incrementAndGet();
-        success = true;
-      } catch (IOException e) {
-        responseCode = 500;
-        try {
-          Thread.sleep(10);
-        } catch (InterruptedException ie) {
-          Thread.currentThread().interrupt();
-        }
-        if (retry == 4) {
-          failedRequests.incrementAndGet();
-        }
+      } else {
+        failedRequests.incrementAndGet();
       }
+      recordResult(requestStartNanos, success, responseCode);
     }
+  }
+
+  /**
+   * sendOneRequestAsync: non-blocking POST through ApiClient (which applies the retry policy on
+   *                      its own); the returned future completes once the result is recorded.
+   */
+  private static CompletableFuture<Void> sendOneRequestAsync(SkierEvent event, long requestStartNanos) {
+    timeline.requestStarted();
+    String endpoint = String.format("skiers/%d/seasons/%d/days/%d/skiers/%d",
+        event.getResortID(), event.getSeasonID(), event.getDayID(), event.getSkierID());
+    return apiClient.sendPostRequestAsync(endpoint, event).handle((body, error) -> {
+      if (error == null) {
+        successfulRequests.incrementAndGet();
+      } else {
+        failedRequests.incrementAndGet();
+      }
+      recordResult(requestStartNanos, error == null, error == null ? 201 : statusOf(error));
+      return null;
+    });
+  }
 
-    long requestEndTime = System.currentTimeMillis();
-    long latency = requestEndTime - requestStartTime;
-    latencies.add(latency);
-    requestStats.add(new RequestStat(requestStartTime, "POST", latency, responseCode));
+  /** HTTP status of a failed request, 500 when it is unknown; I/O errors are logged as 0. */
+  private static int statusOf(Throwable error) {
+    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    return cause instanceof ApiException ? ((ApiException) cause).getStatusCode() : 500;
+  }
+
+  private static void recordResult(long requestStartNanos, boolean success, int responseCode) {
+    long latencyMicros = (System.nanoTime() - requestStartNanos) / 1000;
+    phaseLatencies.record(latencyMicros);
+    timeline.requestFinished(success);
+    long requestStartTime = System.currentTimeMillis() - latencyMicros / 1000;
+    requestLog.record(requestStartTime, RequestLog.POST, latencyMicros, responseCode);
   }
 
   /**
-   * generateSkierEvents: produce 'count' random SkierEvent objects
-   * to simulate random skierID, liftID, time, etc.
+   * mergePhaseLatencies: folds the finished phase's per-thread histograms into the run-wide one,
+   *                      prints the phase percentiles and starts a fresh recorder for the next phase.
    */
-  private static BlockingQueue<SkierEvent> generateSkierEvents(int count) {
-    BlockingQueue<SkierEvent> queue = new LinkedBlockingQueue<>(count);
-    for (int i = 0; i < count; i++) {
-      SkierEvent event = new SkierEvent();
-      queue.add(event);
-    }
-    return queue;
+  private static void mergePhaseLatencies(int phaseId) {
+    LatencyHistogram phase = phaseLatencies.snapshot();
+    phaseLatencies = new LatencyRecorder();
+    latencies.add(phase);
+    System.out.printf("Phase %d latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms over %,d requests.\n",
+        phaseId, phase.getValueAtPercentile(50) / 1000.0, phase.getValueAtPercentile(99) / 1000.0,
+        phase.getMax() / 1000.0, phase.getCount());
   }
 
   private static void printStatistics(long startTime) {
@@ -178,41 +410,32 @@ public class LoadTester {
     double successRate = (double) successfulRequests.get() / TOTAL_REQUESTS * 100;
     double rps = successfulRequests.get() / totalTimeSec;
 
-    // Sort latencies for median/p99
-    synchronized (latencies) {
-      Collections.sort(latencies);
-      double meanResponseTime = latencies.stream().mapToLong(Long::longValue).average().orElse(0.0);
-      int p99Index = (int) Math.max(0, latencies.size() * 0.99 - 1);
-      long p99 = (latencies.size() > 0) ? latencies.get(p99Index) : 0;
-      long minResponseTime = (latencies.size() > 0) ? latencies.get(0) : 0;
-      long maxResponseTime = (latencies.size() > 0) ? latencies.get(latencies.size() - 1) : 0;
-      double medianResponseTime = (latencies.size() > 0) ? latencies.get(latencies.size() / 2) : 0;
-
-      System.out.println("\n======= Load Test Statistics =======");
-      System.out.printf("Total requests (across phases):   %,d\n", TOTAL_REQUESTS);
-      System.out.printf("Successful:       %,d (%.2f%%)\n", successfulRequests.get(), successRate);
-      System.out.printf("Failed:           %,d\n", failedRequests.get());
-      System.out.printf("Total time:       %.2f seconds\n", totalTimeSec);
-      System.out.printf("Requests/sec:     %.2f RPS\n", rps);
-      System.out.printf("Mean Response Time:   %.2f ms\n", meanResponseTime);
-      System.out.printf("Median Response Time: %.2f ms\n", medianResponseTime);
-      System.out.printf("P99 Response Time:    %d ms\n", p99);
-      System.out.printf("Min Response Time:    %d ms\n", minResponseTime);
-      System.out.printf("Max Response Time:    %d ms\n", maxResponseTime);
-      System.out.println("=====================================");
-    }
+    System.out.println("\n======= Load Test Statistics =======");
+    System.out.printf("Total requests (across phases):   %,d\n", TOTAL_REQUESTS);
+    System.out.printf("Successful:       %,d (%.2f%%)\n", successfulRequests.get(), successRate);
+    System.out.printf("Failed:           %,d\n", failedRequests.get());
+    System.out.printf("Total time:       %.2f seconds\n", totalTimeSec);
+    System.out.printf("Requests/sec:     %.2f RPS\n", rps);
+    System.out.printf("Mean Response Time:   %.2f ms\n", latencies.getMean() / 1000.0);
+    System.out.printf("Median Response Time: %.2f ms\n", latencies.getValueAtPercentile(50) / 1000.0);
+    System.out.printf("P90 Response Time:    %.2f ms\n", latencies.getValueAtPercentile(90) / 1000.0);
+    System.out.printf("P99 Response Time:    %.2f ms\n", latencies.getValueAtPercentile(99) / 1000.0);
+    System.out.printf("P99.9 Response Time:  %.2f ms\n", latencies.getValueAtPercentile(99.9) / 1000.0);
+    System.out.printf("Min Response Time:    %.2f ms\n", latencies.getMin() / 1000.0);
+    System.out.printf("Max Response Time:    %.2f ms\n", latencies.getMax() / 1000.0);
+    System.out.println("Connections:      " + apiClient.getConnectionStats());
+    RetryPolicy retryPolicy = apiClient.getRetryPolicy();
+    System.out.printf("Retries:          %,d by status %s, %,d denied by budget\n",
+        retryPolicy.getRetries(), retryPolicy.retriesByStatus(), retryPolicy.getBudgetDenied());
+    System.out.println("=====================================");
   }
 
   private static void writeResultsToCSV() {
-    String fileName = "load_test_results.csv";
-    try (FileWriter writer = new FileWriter(fileName)) {
-      writer.append("Start Time,Request Type,Latency (ms),Response Code\n");
-      synchronized (requestStats) {
-        for (RequestStat stat : requestStats) {
-          writer.append(String.format("%d,POST,%d,%d\n", stat.startTime, stat.latency, stat.responseCode));
-        }
-      }
-      System.out.println("🏆 Load test results saved to " + fileName);
+    try {
+      requestLog.close();
+      long rows = RequestLog.convertToCsv(requestLog.getPath(), Paths.get(RESULTS_CSV));
+      System.out.println("🏆 Load test results saved to " + RESULTS_CSV + " (" + rows + " rows, binary log "
+          + requestLog.getPath() + ")");
     } catch (IOException e) {
       System.err.println("❌ Error writing CSV file: " + e.getMessage());
     }
@@ -0,0 +1,168 @@
+package cs6650.hw1.client;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only log of per-request results, written during the run as fixed-width binary records
+ * into memory-mapped segments of one file, so heap use stays constant however long the test runs.
+ *
+ * File layout (big-endian):
+ *   header  MAGIC (int), VERSION (int), record count (long)
+ *   records start time epoch ms (long), latency micros (long), request type (int), response code (int)
+ *
+ * The record count is written on {@link #close()}; {@link #convertToCsv} turns a closed log into
+ * the load_test_results.csv columns. Usage: java cs6650.hw1.client.RequestLog requests.bin out.csv
+ */
+public class RequestLog implements AutoCloseable {
+  public static final int POST = 0;
+  public static final int GET = 1;
+  private static final String[] TYPE_NAMES = {"POST", "GET"};
+
+  private static final int MAGIC = 0x52514c47; // "RQLG"
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+  private static final int RECORD_SIZE = 24;
+  private static final int RECORDS_PER_SEGMENT = (64 << 20) / RECORD_SIZE; // ~64 MiB per mapping
+  private static final long SEGMENT_SIZE = (long) RECORDS_PER_SEGMENT * RECORD_SIZE;
+  private static final int MAX_SEGMENTS = 4096;
+
+  private final Path path;
+  private final FileChannel channel;
+  private final AtomicReferenceArray<MappedByteBuffer> segments = new AtomicReferenceArray<>(MAX_SEGMENTS);
+  private final AtomicLong nextRecord = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+
+  public RequestLog(Path path) throws IOException {
+    this.path = path;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  /** Thread-safe; no allocation except when a new 64 MiB segment has to be mapped. */
+  public void record(long startTimeMillis, int requestType, long latencyMicros, int responseCode) {
+    long index = nextRecord.getAndIncrement();
+    int segmentIndex = (int) (index / RECORDS_PER_SEGMENT);
+    MappedByteBuffer segment = segmentIndex < MAX_SEGMENTS ? segment(segmentIndex) : null;
+    if (segment == null) {
+      dropped.incrementAndGet();
+      return;
+    }
+    int offset = (int) (index % RECORDS_PER_SEGMENT) * RECORD_SIZE;
+    segment.putLong(offset, startTimeMillis);
+    segment.putLong(offset + 8, latencyMicros);
+    segment.putInt(offset + 16, requestType);
+    segment.putInt(offset + 20, responseCode);
+  }
+
+  private MappedByteBuffer segment(int segmentIndex) {
+    MappedByteBuffer segment = segments.get(segmentIndex);
+    if (segment != null) {
+      return segment;
+    }
+    synchronized (this) {
+      segment = segments.get(segmentIndex);
+      if (segment == null) {
+        try {
+          segment = channel.map(FileChannel.MapMode.READ_WRITE,
+              HEADER_SIZE + segmentIndex * SEGMENT_SIZE, SEGMENT_SIZE);
+          segments.set(segmentIndex, segment);
+        } catch (IOException e) {
+          System.err.println("❌ Error mapping request log segment " + segmentIndex + ": " + e.getMessage());
+        }
+      }
+      return segment;
+    }
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /** Records accepted so far, including any dropped because a segment could not be mapped. */
+  public long size() {
+    return nextRecord.get();
+  }
+
+  /**
+   * Writes the header, flushes the mapped segments and cuts the file down to the records written.
+   * Call once all writers have finished.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    long count = Math.min(nextRecord.get(), (long) MAX_SEGMENTS * RECORDS_PER_SEGMENT);
+    for (int i = 0; i < MAX_SEGMENTS; i++) {
+      MappedByteBuffer segment = segments.get(i);
+      if (segment != null) {
+        segment.force();
+      }
+    }
+    MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    header.putInt(0, MAGIC);
+    header.putInt(4, VERSION);
+    header.putLong(8, count);
+    header.force();
+    // the last segment was mapped at full size; drop its unused tail
+    channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+    channel.close();
+    if (dropped.get() > 0) {
+      System.err.println("❌ Request log dropped " + dropped.get() + " records");
+    }
+  }
+
+  /**
+   * convertToCsv: streams a closed log into "Start Time,Request Type,Latency (ms),Response Code"
+   *               rows, skipping slots that were never written. Returns the number of rows written.
+   */
+  public static long convertToCsv(Path log, Path csv) throws IOException {
+    try (InputStream file = Files.newInputStream(log);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16));
+        Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Not a request log: " + log);
+      }
+      long count = in.readLong();
+      out.write("Start Time,Request Type,Latency (ms),Response Code\n");
+      StringBuilder line = new StringBuilder(64);
+      long rows = 0;
+      for (long i = 0; i < count; i++) {
+        long startTime = in.readLong();
+        long latencyMicros = in.readLong();
+        int requestType = in.readInt();
+        int responseCode = in.readInt();
+        if (startTime == 0) {
+          continue;
+        }
+        rows++;
+        line.setLength(0);
+        line.append(startTime).append(',')
+            .append(requestType >= 0 && requestType < TYPE_NAMES.length ? TYPE_NAMES[requestType] : "?")
+            .append(',').append(latencyMicros / 1000)
+            .append(',').append(responseCode).append('\n');
+        out.append(line);
+      }
+      return rows;
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: RequestLog <request log> <output csv>");
+      System.exit(1);
+    }
+    long rows = convertToCsv(Paths.get(args[0]), Paths.get(args[1]));
+    System.out.println("🏆 Wrote " + rows + " rows to " + args[1]);
+  }
+}
@@ -0,0 +1,113 @@
+package cs6650.hw1.client;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Retry rules shared by every ApiClient call.
+ *
+ * - Only I/O errors (status 0), 429 and 5xx are retried; other 4xx responses fail at once.
+ * - Attempt n waits a random time in [0, min(maxDelay, baseDelay * 2^(n-1))] ("full jitter"),
+ *   so clients that failed together do not retry together.
+ * - Retries are capped by a budget: at most {@code minRetries + budgetRatio * requests} retries
+ *   over the life of the client, so an overloaded server sees at most ~(1 + budgetRatio) times the
+ *   offered load instead of maxAttempts times.
+ *
+ * System properties: apiclient.maxAttempts (3), apiclient.retryBaseMs (100),
+ * apiclient.retryMaxMs (2000), apiclient.retryBudget (0.1), apiclient.minRetries (100).
+ */
+public class RetryPolicy {
+  /** Status used for I/O errors, where there is no HTTP response. */
+  public static final int IO_ERROR = 0;
+
+  private final int maxAttempts;
+  private final long baseDelayMs;
+  private final long maxDelayMs;
+  private final double budgetRatio;
+  private final long minRetries;
+
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final LongAdder budgetDenied = new LongAdder();
+  private final Map<Integer, LongAdder> retriesByStatus = new ConcurrentHashMap<>();
+
+  public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, double budgetRatio, long minRetries) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("maxAttempts must be positive");
+    }
+    this.maxAttempts = maxAttempts;
+    this.baseDelayMs = baseDelayMs;
+    this.maxDelayMs = maxDelayMs;
+    this.budgetRatio = budgetRatio;
+    this.minRetries = minRetries;
+  }
+
+  public static RetryPolicy fromSystemProperties() {
+    return new RetryPolicy(
+        Integer.getInteger("apiclient.maxAttempts", 3),
+        Long.getLong("apiclient.retryBaseMs", 100L),
+        Long.getLong("apiclient.retryMaxMs", 2000L),
+        Double.parseDouble(System.getProperty("apiclient.retryBudget", "0.1")),
+        Long.getLong("apiclient.minRetries", 100L));
+  }
+
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /** Called once per logical request, before its first attempt; earns retry budget. */
+  public void onRequest() {
+    requests.incrementAndGet();
+  }
+
+  public static boolean isRetryable(int statusCode) {
+    return statusCode == IO_ERROR || statusCode == 429 || statusCode >= 500;
+  }
+
+  /**
+   * Decides whether a failed attempt gets another try and, if so, takes one retry from the budget
+   * and counts it against {@code statusCode}.
+   */
+  public boolean shouldRetry(int attempt, int statusCode) {
+    if (attempt >= maxAttempts || !isRetryable(statusCode)) {
+      return false;
+    }
+    long used;
+    do {
+      used = retries.get();
+      if (used >= minRetries + (long) (budgetRatio * requests.get())) {
+        budgetDenied.increment();
+        return false;
+      }
+    } while (!retries.compareAndSet(used, used + 1));
+    retriesByStatus.computeIfAbsent(statusCode, k -> new LongAdder()).increment();
+    return true;
+  }
+
+  /** Delay before the retry that follows failed attempt {@code attempt} (1-based), with full jitter. */
+  public long backoffMillis(int attempt) {
+    long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  public long getRetries() {
+    return retries.get();
+  }
+
+  public long getBudgetDenied() {
+    return budgetDenied.sum();
+  }
+
+  /** Retries taken so far by status, e.g. {IO=4, 500=12, 503=3}. */
+  public String retriesByStatus() {
+    Map<String, Long> sorted = new TreeMap<>();
+    for (Map.Entry<Integer, LongAdder> e : retriesByStatus.entrySet()) {
+      sorted.put(e.getKey() == IO_ERROR ? "IO" : String.valueOf(e.getKey()), e.getValue().sum());
+    }
+    return sorted.toString();
+  }
+}
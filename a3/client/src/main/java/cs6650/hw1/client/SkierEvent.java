@@ -1,24 +1,44 @@
 package cs6650.hw1.client;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * One lift ride to POST. Events are reusable: each client thread keeps one and refills it from
+ * the {@link EventRing} with {@link #set}, so the request loop does not allocate events.
+ */
 public class SkierEvent {
-  private static final Random RANDOM = new Random();
+  static final int MAX_SKIER_ID = 100000;
+  static final int RESORT_COUNT = 10;
+  static final int LIFT_COUNT = 40;
+  static final int SEASON_ID = 2025;
+  static final int DAY_ID = 1;
+  static final int MAX_TIME = 360;
 
-  private final int skierID;
-  private final int resortID;
-  private final int liftID;
-  private final int seasonID;
-  private final int dayID;
-  private final int time;
+  private int skierID;
+  private int resortID;
+  private int liftID;
+  private int seasonID;
+  private int dayID;
+  private int time;
 
+  /** A uniformly random ride; use {@link WorkloadModel} for skewed or reproducible workloads. */
   public SkierEvent() {
-    this.skierID = RANDOM.nextInt(100000) + 1;
-    this.resortID = RANDOM.nextInt(10) + 1;
-    this.liftID = RANDOM.nextInt(40) + 1;
-    this.seasonID = 2025;
-    this.dayID = 1;
-    this.time = RANDOM.nextInt(360) + 1;
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    set(random.nextInt(MAX_SKIER_ID) + 1,
+        random.nextInt(RESORT_COUNT) + 1,
+        random.nextInt(LIFT_COUNT) + 1,
+        SEASON_ID,
+        DAY_ID,
+        random.nextInt(MAX_TIME) + 1);
+  }
+
+  public void set(int skierID, int resortID, int liftID, int seasonID, int dayID, int time) {
+    this.skierID = skierID;
+    this.resortID = resortID;
+    this.liftID = liftID;
+    this.seasonID = seasonID;
+    this.dayID = dayID;
+    this.time = time;
   }
 
   public int getSkierID() { return skierID; }
@@ -0,0 +1,130 @@
+package cs6650.hw1.client;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Samples the load test once per second: completed requests/sec, errors, requests in flight and
+ * interval p50/p99 (from the difference between two bucket snapshots of the phase's
+ * {@link LatencyRecorder}). Each sample goes to the console and to a timeline CSV.
+ *
+ * Request threads only touch {@link LongAdder}s; everything else happens on the sampler thread.
+ */
+public class TimelineSampler implements AutoCloseable {
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+
+  private final BufferedWriter timeline;
+  private final boolean console;
+  private final ScheduledExecutorService scheduler;
+  private final long startNanos = System.nanoTime();
+
+  private final long[] counts = new long[LatencyHistogram.bucketCount()];
+  private final long[] previousCounts = new long[LatencyHistogram.bucketCount()];
+  private final long[] scratch = new long[LatencyHistogram.bucketCount()];
+  private LatencyRecorder recorder;
+  private int phaseId;
+  private long lastSampleNanos = startNanos;
+  private long lastCompleted;
+  private long lastErrors;
+
+  public TimelineSampler(Path timelineFile, boolean console) throws IOException {
+    this.timeline = Files.newBufferedWriter(timelineFile, StandardCharsets.UTF_8);
+    this.timeline.write("Elapsed (s),Phase,Requests/sec,Errors,In Flight,P50 (ms),P99 (ms)\n");
+    this.console = console;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "timeline-sampler");
+      t.setDaemon(true);
+      return t;
+    });
+    scheduler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+  }
+
+  public void requestStarted() {
+    inFlight.increment();
+  }
+
+  public void requestFinished(boolean success) {
+    inFlight.decrement();
+    completed.increment();
+    if (!success) {
+      errors.increment();
+    }
+  }
+
+  /**
+   * Closes the current interval (a partial second at a phase boundary) and starts sampling
+   * latencies from the new phase's recorder.
+   */
+  public synchronized void beginPhase(int phaseId, LatencyRecorder recorder) {
+    if (this.recorder != null) {
+      sample();
+    }
+    this.phaseId = phaseId;
+    this.recorder = recorder;
+    Arrays.fill(previousCounts, 0);
+  }
+
+  private synchronized void sample() {
+    long now = System.nanoTime();
+    double intervalSeconds = (now - lastSampleNanos) / 1e9;
+    if (intervalSeconds <= 0) {
+      return;
+    }
+    long completedNow = completed.sum();
+    long errorsNow = errors.sum();
+    long intervalCompleted = completedNow - lastCompleted;
+    long intervalErrors = errorsNow - lastErrors;
+
+    long p50 = 0;
+    long p99 = 0;
+    if (recorder != null) {
+      recorder.copyCounts(counts, scratch);
+      long total = 0;
+      for (int i = 0; i < counts.length; i++) {
+        long current = counts[i];
+        counts[i] = current - previousCounts[i];
+        previousCounts[i] = current;
+        total += counts[i];
+      }
+      p50 = LatencyHistogram.valueAtPercentile(counts, total, 50);
+      p99 = LatencyHistogram.valueAtPercentile(counts, total, 99);
+    }
+
+    double elapsed = (now - startNanos) / 1e9;
+    double rps = intervalCompleted / intervalSeconds;
+    long inFlightNow = inFlight.sum();
+    if (console) {
+      System.out.printf("[%6.1fs] phase %d: %,8.0f req/s, %,d errors, %,d in flight, p50 %.2f ms, p99 %.2f ms\n",
+          elapsed, phaseId, rps, intervalErrors, inFlightNow, p50 / 1000.0, p99 / 1000.0);
+    }
+    try {
+      timeline.write(String.format("%.1f,%d,%.1f,%d,%d,%.3f,%.3f\n",
+          elapsed, phaseId, rps, intervalErrors, inFlightNow, p50 / 1000.0, p99 / 1000.0));
+      timeline.flush();
+    } catch (IOException e) {
+      System.err.println("❌ Error writing timeline: " + e.getMessage());
+    }
+
+    lastSampleNanos = now;
+    lastCompleted = completedNow;
+    lastErrors = errorsNow;
+  }
+
+  /** Takes a final sample and closes the timeline file. */
+  @Override
+  public synchronized void close() throws IOException {
+    scheduler.shutdownNow();
+    sample();
+    timeline.close();
+  }
+}
@@ -0,0 +1,109 @@
+package cs6650.hw1.client;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible description of the lift rides a load test sends.
+ *
+ * Skier and lift IDs follow a Zipf distribution (rank k drawn with weight 1/k^s, so ID 1 is the
+ * hottest; s = 0 is uniform), resorts and times are uniform, and rides are spread over several
+ * days and seasons. Every generator gets its own {@link SplittableRandom} stream derived from the
+ * seed and a stream id, so two runs with the same seed send the same events.
+ *
+ * System properties:
+ *   loadtester.seed       seed for all streams (default: random, printed at start-up)
+ *   loadtester.skierSkew  Zipf exponent for skier IDs (default 0 = uniform)
+ *   loadtester.liftSkew   Zipf exponent for lift IDs (default 0 = uniform)
+ *   loadtester.days       days per season, dayID 1..days (default 1)
+ *   loadtester.seasons    seasons from 2025 upward (default 1)
+ */
+public class WorkloadModel {
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private final long seed;
+  private final double skierSkew;
+  private final double liftSkew;
+  private final int days;
+  private final int seasons;
+  // cumulative probabilities by rank, or null for uniform
+  private final double[] skierCdf;
+  private final double[] liftCdf;
+
+  public WorkloadModel(long seed, double skierSkew, double liftSkew, int days, int seasons) {
+    if (days < 1 || seasons < 1) {
+      throw new IllegalArgumentException("days and seasons must be positive");
+    }
+    this.seed = seed;
+    this.skierSkew = skierSkew;
+    this.liftSkew = liftSkew;
+    this.days = days;
+    this.seasons = seasons;
+    this.skierCdf = zipfCdf(SkierEvent.MAX_SKIER_ID, skierSkew);
+    this.liftCdf = zipfCdf(SkierEvent.LIFT_COUNT, liftSkew);
+  }
+
+  public static WorkloadModel fromSystemProperties() {
+    String seed = System.getProperty("loadtester.seed");
+    return new WorkloadModel(
+        seed != null ? Long.parseLong(seed) : System.nanoTime() ^ System.currentTimeMillis(),
+        Double.parseDouble(System.getProperty("loadtester.skierSkew", "0")),
+        Double.parseDouble(System.getProperty("loadtester.liftSkew", "0")),
+        Integer.getInteger("loadtester.days", 1),
+        Integer.getInteger("loadtester.seasons", 1));
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  /** Independent random stream for one generator; the same id always gives the same sequence. */
+  public SplittableRandom stream(long streamId) {
+    return new SplittableRandom(seed + streamId * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Writes one event as skierID, resortID, liftID, seasonID, dayID, time into
+   * {@code out[offset..offset+5]}.
+   */
+  public void next(SplittableRandom random, int[] out, int offset) {
+    out[offset] = sample(random, skierCdf, SkierEvent.MAX_SKIER_ID);
+    out[offset + 1] = random.nextInt(SkierEvent.RESORT_COUNT) + 1;
+    out[offset + 2] = sample(random, liftCdf, SkierEvent.LIFT_COUNT);
+    out[offset + 3] = SkierEvent.SEASON_ID + random.nextInt(seasons);
+    out[offset + 4] = SkierEvent.DAY_ID + random.nextInt(days);
+    out[offset + 5] = random.nextInt(SkierEvent.MAX_TIME) + 1;
+  }
+
+  private static int sample(SplittableRandom random, double[] cdf, int n) {
+    if (cdf == null) {
+      return random.nextInt(n) + 1;
+    }
+    int index = Arrays.binarySearch(cdf, random.nextDouble());
+    // binarySearch returns -(insertion point) - 1 when the value falls between two entries
+    return (index >= 0 ? index : -index - 1) + 1;
+  }
+
+  private static double[] zipfCdf(int n, double exponent) {
+    if (exponent <= 0) {
+      return null;
+    }
+    double[] cdf = new double[n];
+    double total = 0;
+    for (int k = 1; k <= n; k++) {
+      total += 1 / Math.pow(k, exponent);
+      cdf[k - 1] = total;
+    }
+    for (int i = 0; i < n; i++) {
+      cdf[i] /= total;
+    }
+    cdf[n - 1] = 1.0;
+    return cdf;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("seed=%d, skierSkew=%.2f, liftSkew=%.2f, days=%d, seasons=%d",
+        seed, skierSkew, liftSkew, days, seasons);
+  }
+}
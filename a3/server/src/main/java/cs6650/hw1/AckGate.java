@@ -0,0 +1,69 @@
+package cs6650.hw1;
+
+import java.util.ArrayDeque;
+
+/**
+ * Holds a writer's acks until the {@link RideSink} has applied the rides behind them.
+ *
+ * Writers queue an ack with the generation their rides went into and call {@link #release()}
+ * whenever they run (each write and each scheduled flush check). Acks leave in the order they
+ * were queued; a run of multiple=true acks is collapsed into the last one. A multiple=true nack
+ * drops the queued acks it covers, since the broker has settled those deliveries; their rides
+ * are then counted again when redelivered. A failed ack or nack is printed, not thrown: the
+ * channel is gone and the broker requeues everything unacked.
+ */
+final class AckGate {
+  private final Acknowledger acknowledger;
+  private final RideSink sink;
+  private final ArrayDeque<PendingAck> waiting = new ArrayDeque<>();
+
+  AckGate(Acknowledger acknowledger, RideSink sink) {
+    this.acknowledger = acknowledger;
+    this.sink = sink;
+  }
+
+  synchronized void ackWhenApplied(long generation, long deliveryTag, boolean multiple) {
+    waiting.add(new PendingAck(generation, deliveryTag, multiple));
+    release();
+  }
+
+  synchronized void release() {
+    long applied = sink.appliedGeneration();
+    while (!waiting.isEmpty() && waiting.peek().generation <= applied) {
+      PendingAck ack = waiting.poll();
+      PendingAck next = waiting.peek();
+      if (ack.multiple && next != null && next.multiple && next.generation <= applied) {
+        // the next one covers this tag as well
+        continue;
+      }
+      try {
+        acknowledger.ack(ack.deliveryTag, ack.multiple);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  synchronized void nack(long deliveryTag, boolean multiple, boolean requeue) {
+    if (multiple) {
+      waiting.removeIf(ack -> ack.deliveryTag <= deliveryTag);
+    }
+    try {
+      acknowledger.nack(deliveryTag, multiple, requeue);
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+
+  private static final class PendingAck {
+    final long generation;
+    final long deliveryTag;
+    final boolean multiple;
+
+    PendingAck(long generation, long deliveryTag, boolean multiple) {
+      this.generation = generation;
+      this.deliveryTag = deliveryTag;
+      this.multiple = multiple;
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package cs6650.hw1;
+
+import com.rabbitmq.client.Channel;
+
+import java.io.IOException;
+
+/**
+ * The subset of {@link Channel} the ride writers need to settle deliveries.
+ * Kept separate so writers can be driven without a broker (e.g. against a fake DynamoDbClient).
+ */
+public interface Acknowledger {
+
+  void ack(long deliveryTag, boolean multiple) throws IOException;
+
+  void nack(long deliveryTag, boolean multiple, boolean requeue) throws IOException;
+
+  static Acknowledger forChannel(Channel channel) {
+    return new Acknowledger() {
+      @Override
+      public void ack(long deliveryTag, boolean multiple) throws IOException {
+        channel.basicAck(deliveryTag, multiple);
+      }
+
+      @Override
+      public void nack(long deliveryTag, boolean multiple, boolean requeue) throws IOException {
+        channel.basicNack(deliveryTag, multiple, requeue);
+      }
+    };
+  }
+}
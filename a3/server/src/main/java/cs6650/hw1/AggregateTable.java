@@ -0,0 +1,220 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+
+/**
+ * Materialized aggregates kept by SkierConsumer, so every read is a GetItem (or a Query over a
+ * skier's handful of seasons) instead of work proportional to the rides.
+ *
+ *   PK skier#resort   SK day#season#day   Vertical, Rides     skier's day at a resort
+ *   PK skier#resort   SK total#season     Vertical, Rides     skier's season at a resort
+ *   PK resort#season#day  SK skiers#shard Skiers              unique skiers that day, summed
+ *   PK resort#season#day  SK skier#id     (marker)            this skier was counted
+ *
+ * Vertical and Rides grow by ADD updates, applied to the day and season items in one transaction
+ * so the two never disagree. A skier is counted for a resort/day by a transaction that puts the
+ * marker only if it does not exist and adds 1 to one of {@value #SKIER_COUNT_SHARDS} Skiers
+ * counters (picked by skierID), so concurrent consumers never count a skier twice and do not all
+ * contend on one counter item.
+ *
+ * System property: dynamodb.aggregateTable (SkierAggregates).
+ */
+public class AggregateTable {
+  static final String PARTITION_KEY = "PK";
+  static final String SORT_KEY = "SK";
+  private static final String SKIERS_SORT_KEY = "skiers";
+  static final int SKIER_COUNT_SHARDS = 16;
+  private static final int MAX_CONFLICT_RETRIES = 8;
+
+  private final String tableName;
+
+  public AggregateTable(String tableName) {
+    this.tableName = tableName;
+  }
+
+  public static AggregateTable fromSystemProperties() {
+    return new AggregateTable(System.getProperty("dynamodb.aggregateTable", "SkierAggregates"));
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  /**
+   * Adds to a skier's day and season totals at once; both items are created on first use.
+   *
+   * @param clientRequestToken reused when retrying the same delta, so a transaction that committed
+   *     but whose response was lost is not applied twice (DynamoDB honours it for 10 minutes)
+   */
+  public void addVertical(DynamoDbClient ddb, int skierID, int resortID, int seasonID, int dayID,
+      long vertical, long rides, String clientRequestToken) {
+    String pk = skierResort(skierID, resortID);
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":v", AttributeValue.fromN(String.valueOf(vertical)));
+    values.put(":r", AttributeValue.fromN(String.valueOf(rides)));
+    List<TransactWriteItem> updates = new ArrayList<>(2);
+    for (String sk : new String[] {daySortKey(seasonID, dayID), totalSortKey(seasonID)}) {
+      updates.add(TransactWriteItem.builder().update(Update.builder()
+          .tableName(tableName)
+          .key(key(pk, sk))
+          .updateExpression("ADD Vertical :v, Rides :r")
+          .expressionAttributeValues(values)
+          .build()).build());
+    }
+    ddb.transactWriteItems(TransactWriteItemsRequest.builder()
+        .transactItems(updates)
+        .clientRequestToken(clientRequestToken)
+        .build());
+  }
+
+  /**
+   * Counts {@code skierID} as a visitor of the resort/day unless some consumer already did.
+   * Cancellations caused by a concurrent transaction on the marker or counter are retried with
+   * backoff.
+   *
+   * @return true if this call counted the skier
+   */
+  public boolean addSkier(DynamoDbClient ddb, int resortID, int seasonID, int dayID, int skierID) {
+    String pk = resortDay(resortID, seasonID, dayID);
+    TransactWriteItem marker = TransactWriteItem.builder().put(Put.builder()
+        .tableName(tableName)
+        .item(key(pk, "skier#" + skierID))
+        .conditionExpression("attribute_not_exists(" + PARTITION_KEY + ")")
+        .build()).build();
+    TransactWriteItem count = TransactWriteItem.builder().update(Update.builder()
+        .tableName(tableName)
+        .key(key(pk, SKIERS_SORT_KEY + "#" + Math.floorMod(skierID, SKIER_COUNT_SHARDS)))
+        .updateExpression("ADD Skiers :one")
+        .expressionAttributeValues(Collections.singletonMap(":one", AttributeValue.fromN("1")))
+        .build()).build();
+    for (int attempt = 0; ; attempt++) {
+      try {
+        ddb.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(marker, count).build());
+        return true;
+      } catch (TransactionCanceledException e) {
+        // one reason per item, in order: the marker, then the counter
+        List<CancellationReason> reasons = e.hasCancellationReasons()
+            ? e.cancellationReasons() : Collections.<CancellationReason>emptyList();
+        if (!reasons.isEmpty() && "ConditionalCheckFailed".equals(reasons.get(0).code())) {
+          return false;
+        }
+        boolean conflict = false;
+        for (CancellationReason reason : reasons) {
+          conflict |= "TransactionConflict".equals(reason.code());
+        }
+        if (!conflict || attempt >= MAX_CONFLICT_RETRIES) {
+          throw e;
+        }
+        try {
+          Thread.sleep(BatchRideWriter.backoffMillis(attempt));
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  /** A skier's vertical on one day at a resort, or null if no ride was recorded. */
+  public Integer dayVertical(DynamoDbClient ddb, int skierID, int resortID, int seasonID, int dayID) {
+    Map<String, AttributeValue> item = get(ddb, skierResort(skierID, resortID), daySortKey(seasonID, dayID));
+    return item == null ? null : Integer.valueOf(item.get("Vertical").n());
+  }
+
+  /**
+   * Total vertical of a skier at a resort per season: one GetItem for a given season, otherwise
+   * a Query over the skier's season totals.
+   */
+  public SortedMap<Integer, Integer> seasonVerticals(DynamoDbClient ddb, int skierID, int resortID, Integer seasonID) {
+    SortedMap<Integer, Integer> verticals = new TreeMap<>();
+    String pk = skierResort(skierID, resortID);
+    if (seasonID != null) {
+      Map<String, AttributeValue> item = get(ddb, pk, totalSortKey(seasonID));
+      if (item != null) {
+        verticals.put(seasonID, Integer.valueOf(item.get("Vertical").n()));
+      }
+      return verticals;
+    }
+
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":pk", AttributeValue.fromS(pk));
+    values.put(":prefix", AttributeValue.fromS("total#"));
+    QueryRequest request = QueryRequest.builder()
+        .tableName(tableName)
+        .keyConditionExpression(PARTITION_KEY + " = :pk AND begins_with(" + SORT_KEY + ", :prefix)")
+        .expressionAttributeValues(values)
+        .build();
+    for (Map<String, AttributeValue> item : ddb.queryPaginator(request).items()) {
+      int season = Integer.parseInt(item.get(SORT_KEY).s().substring("total#".length()));
+      verticals.put(season, Integer.valueOf(item.get("Vertical").n()));
+    }
+    return verticals;
+  }
+
+  /** Unique skiers of a resort/day: one Query summing the counter shards. */
+  public int uniqueSkiers(DynamoDbClient ddb, int resortID, int seasonID, int dayID) {
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":pk", AttributeValue.fromS(resortDay(resortID, seasonID, dayID)));
+    values.put(":prefix", AttributeValue.fromS(SKIERS_SORT_KEY));
+    QueryRequest request = QueryRequest.builder()
+        .tableName(tableName)
+        .keyConditionExpression(PARTITION_KEY + " = :pk AND begins_with(" + SORT_KEY + ", :prefix)")
+        .expressionAttributeValues(values)
+        .build();
+    int skiers = 0;
+    for (Map<String, AttributeValue> item : ddb.queryPaginator(request).items()) {
+      skiers += Integer.parseInt(item.get("Skiers").n());
+    }
+    return skiers;
+  }
+
+  /** Creates the table (on-demand capacity) and waits for it, unless it already exists. */
+  public void createIfMissing(DynamoDbClient ddb) {
+    try {
+      ddb.createTable(CreateTableRequest.builder()
+          .tableName(tableName)
+          .attributeDefinitions(
+              AttributeDefinition.builder().attributeName(PARTITION_KEY).attributeType(ScalarAttributeType.S).build(),
+              AttributeDefinition.builder().attributeName(SORT_KEY).attributeType(ScalarAttributeType.S).build())
+          .keySchema(
+              KeySchemaElement.builder().attributeName(PARTITION_KEY).keyType(KeyType.HASH).build(),
+              KeySchemaElement.builder().attributeName(SORT_KEY).keyType(KeyType.RANGE).build())
+          .billingMode(BillingMode.PAY_PER_REQUEST)
+          .build());
+    } catch (ResourceInUseException e) {
+      // already there
+    }
+    ddb.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(tableName).build());
+  }
+
+  private Map<String, AttributeValue> get(DynamoDbClient ddb, String pk, String sk) {
+    GetItemResponse response = ddb.getItem(GetItemRequest.builder().tableName(tableName).key(key(pk, sk)).build());
+    return response.hasItem() && !response.item().isEmpty() ? response.item() : null;
+  }
+
+  private static Map<String, AttributeValue> key(String pk, String sk) {
+    Map<String, AttributeValue> key = new HashMap<>();
+    key.put(PARTITION_KEY, AttributeValue.fromS(pk));
+    key.put(SORT_KEY, AttributeValue.fromS(sk));
+    return key;
+  }
+
+  private static String skierResort(int skierID, int resortID) {
+    return skierID + "#" + resortID;
+  }
+
+  private static String resortDay(int resortID, int seasonID, int dayID) {
+    return resortID + "#" + seasonID + "#" + dayID;
+  }
+
+  private static String daySortKey(int seasonID, int dayID) {
+    return "day#" + seasonID + "#" + dayID;
+  }
+
+  private static String totalSortKey(int seasonID) {
+    return "total#" + seasonID;
+  }
+}
@@ -0,0 +1,125 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pipelines putItem calls through a {@link DynamoDbAsyncClient}.
+ *
+ * Up to {@code maxInFlight} writes are outstanding per channel; each delivery is acked (or nacked
+ * and requeued) from the completion callback of its last outstanding write, so the dispatch thread
+ * never waits on a network round trip. When the window is full, {@link #write} blocks until a
+ * write completes. Each ride that was written is handed to {@code sink}, and the ack waits in an
+ * {@link AckGate} until the sink has applied the delivery's rides.
+ */
+public class AsyncRideWriter implements RideWriter {
+  private final DynamoDbAsyncClient ddb;
+  private final RideTable table;
+  private final AckGate acks;
+  private final Semaphore inFlight;
+  private final RideSink sink;
+
+  public AsyncRideWriter(DynamoDbAsyncClient ddb, RideTable table, Acknowledger acknowledger,
+      int maxInFlight) {
+    this(ddb, table, acknowledger, maxInFlight, RideSink.NONE);
+  }
+
+  public AsyncRideWriter(DynamoDbAsyncClient ddb, RideTable table, Acknowledger acknowledger,
+      int maxInFlight, RideSink sink) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive");
+    }
+    this.ddb = ddb;
+    this.table = table;
+    this.acks = new AckGate(acknowledger, sink);
+    this.inFlight = new Semaphore(maxInFlight);
+    this.sink = sink;
+  }
+
+  @Override
+  public void write(List<LiftRide> rides, long deliveryTag) {
+    Delivery delivery = new Delivery(deliveryTag, rides.size());
+    for (LiftRide ride : rides) {
+      try {
+        inFlight.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        // count the unsent rides as failed so the delivery is nacked once the sent ones finish
+        delivery.failed = e;
+        for (int i = delivery.unsent; i > 0; i--) {
+          delivery.complete(null);
+        }
+        return;
+      }
+      delivery.unsent--;
+
+      PutItemRequest request = PutItemRequest.builder()
+          .tableName(table.getTableName())
+          .item(table.toItem(ride))
+          .build();
+
+      try {
+        ddb.putItem(request).whenComplete((response, error) -> {
+          inFlight.release();
+          if (error == null) {
+            delivery.generation.accumulateAndGet(sink.ridesWritten(Collections.singletonList(ride)), Math::max);
+          }
+          delivery.complete(error);
+        });
+      } catch (RuntimeException e) {
+        inFlight.release();
+        delivery.complete(e);
+      }
+    }
+    acks.release();
+  }
+
+  @Override
+  public void flushIfLingering() {
+    acks.release();
+  }
+
+  /** Tracks the outstanding writes of one delivery; settles it when the last one completes. */
+  private final class Delivery {
+    private final long deliveryTag;
+    private final AtomicInteger remaining;
+    // the latest generation any of its rides went into
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Throwable failed;
+    // only touched by the dispatch thread
+    private int unsent;
+
+    Delivery(long deliveryTag, int rides) {
+      this.deliveryTag = deliveryTag;
+      this.remaining = new AtomicInteger(rides);
+      this.unsent = rides;
+      if (rides == 0) {
+        settle(deliveryTag, 0, null);
+      }
+    }
+
+    void complete(Throwable error) {
+      if (error != null) {
+        failed = error;
+      }
+      if (remaining.decrementAndGet() == 0) {
+        settle(deliveryTag, generation.get(), failed);
+      }
+    }
+  }
+
+  private void settle(long deliveryTag, long generation, Throwable error) {
+    if (error == null) {
+      acks.ackWhenApplied(generation, deliveryTag, false);
+    } else {
+      System.err.println("❌ Failed to write ride for tag " + deliveryTag + ": " + error.getMessage());
+      acks.nack(deliveryTag, false, true);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares one blocking putItem per ride against {@link AsyncRideWriter} on a single consumer
+ * thread, using in-process fake clients that answer after an injected latency.
+ *
+ * Usage: -Dbench.rides=20000 -Dbench.latencyMs=5 -Dbench.maxInFlight=1,8,64,256
+ */
+public class AsyncRideWriterBenchmark {
+
+  public static void main(String[] args) throws Exception {
+    int rides = Integer.getInteger("bench.rides", 20000);
+    long latencyMs = Long.getLong("bench.latencyMs", 5L);
+    String[] windows = System.getProperty("bench.maxInFlight", "1,8,64,256").split(",");
+
+    ScheduledExecutorService network = Executors.newScheduledThreadPool(4);
+    LiftRide ride = new LiftRide(1, 2025, 1, 42, 7, 120);
+    List<LiftRide> delivery = Collections.singletonList(ride);
+    RideTable table = new RideTable("SkierDayRides", 1);
+
+    DynamoDbClient blocking = new DynamoDbClient() {
+      @Override
+      public PutItemResponse putItem(PutItemRequest request) {
+        try {
+          Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return PutItemResponse.builder().build();
+      }
+
+      @Override
+      public String serviceName() { return "fake-dynamodb"; }
+
+      @Override
+      public void close() {}
+    };
+
+    int blockingRides = Math.min(rides, 2000);
+    long start = System.nanoTime();
+    for (int i = 0; i < blockingRides; i++) {
+      blocking.putItem(PutItemRequest.builder().tableName(table.getTableName()).item(table.toItem(ride)).build());
+    }
+    report("blocking putItem", blockingRides, System.nanoTime() - start);
+
+    DynamoDbAsyncClient async = new DynamoDbAsyncClient() {
+      @Override
+      public CompletableFuture<PutItemResponse> putItem(PutItemRequest request) {
+        CompletableFuture<PutItemResponse> future = new CompletableFuture<>();
+        network.schedule(() -> future.complete(PutItemResponse.builder().build()),
+            latencyMs, TimeUnit.MILLISECONDS);
+        return future;
+      }
+
+      @Override
+      public String serviceName() { return "fake-dynamodb"; }
+
+      @Override
+      public void close() {}
+    };
+
+    for (String window : windows) {
+      int maxInFlight = Integer.parseInt(window.trim());
+      CountDownLatch settled = new CountDownLatch(rides);
+      AtomicLong nacks = new AtomicLong();
+      Acknowledger acknowledger = new Acknowledger() {
+        @Override
+        public void ack(long deliveryTag, boolean multiple) {
+          settled.countDown();
+        }
+
+        @Override
+        public void nack(long deliveryTag, boolean multiple, boolean requeue) {
+          nacks.incrementAndGet();
+          settled.countDown();
+        }
+      };
+
+      AsyncRideWriter writer = new AsyncRideWriter(async, table, acknowledger, maxInFlight);
+      start = System.nanoTime();
+      for (int i = 1; i <= rides; i++) {
+        writer.write(delivery, i);
+      }
+      settled.await();
+      report("async maxInFlight=" + maxInFlight + (nacks.get() > 0 ? " nacks=" + nacks.get() : ""),
+          rides, System.nanoTime() - start);
+    }
+
+    network.shutdownNow();
+  }
+
+  private static void report(String name, int rides, long elapsedNanos) {
+    double seconds = elapsedNanos / 1_000_000_000.0;
+    System.out.printf("%-28s %,8d rides in %6.2f s => %,10.0f rides/sec\n",
+        name, rides, seconds, rides / seconds);
+  }
+}
@@ -0,0 +1,155 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Groups lift rides from one RabbitMQ channel into BatchWriteItem calls.
+ *
+ * A batch is flushed when it reaches {@code batchSize} items or when its oldest ride has waited
+ * {@code maxLingerMs}. UnprocessedItems are re-driven with exponential backoff, and only once the
+ * whole batch is written are its rides handed to {@code sink}. Once the sink has applied them
+ * (see {@link AckGate}), the channel is acked with multiple=true up to the highest delivery tag
+ * whose rides have all been written (a batch-frame delivery may span several BatchWriteItems).
+ * If a batch cannot be written, every delivery it touches is nacked and requeued; rides that were
+ * already written are simply put again on redelivery.
+ *
+ * All methods are synchronized: deliveries arrive on the channel's dispatch thread while
+ * {@link #flushIfLingering()} is driven by a shared scheduler.
+ */
+public class BatchRideWriter implements RideWriter {
+  /** DynamoDB's hard limit on requests per BatchWriteItem call. */
+  public static final int MAX_BATCH_SIZE = 25;
+
+  private static final int MAX_REDRIVE_ATTEMPTS = 8;
+  private static final long BASE_BACKOFF_MS = 20;
+  private static final long MAX_BACKOFF_MS = 2000;
+
+  private final DynamoDbClient ddb;
+  private final RideTable table;
+  private final AckGate acks;
+  private final int batchSize;
+  private final long maxLingerNanos;
+  private final RideSink sink;
+
+  // keyed by primary key: a later ride for the same item replaces the earlier one, as putItem would
+  private final Map<String, LiftRide> pending = new LinkedHashMap<>();
+  private long highestDeliveryTag = -1;
+  // highest tag whose rides are all in pending or already written
+  private long completeDeliveryTag = -1;
+  // highest tag already acked or nacked
+  private long settledDeliveryTag = -1;
+  private long oldestPendingNanos;
+
+  public BatchRideWriter(DynamoDbClient ddb, RideTable table, Acknowledger acknowledger,
+      int batchSize, long maxLingerMs) {
+    this(ddb, table, acknowledger, batchSize, maxLingerMs, RideSink.NONE);
+  }
+
+  public BatchRideWriter(DynamoDbClient ddb, RideTable table, Acknowledger acknowledger,
+      int batchSize, long maxLingerMs, RideSink sink) {
+    if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+      throw new IllegalArgumentException("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+    }
+    this.ddb = ddb;
+    this.table = table;
+    this.acks = new AckGate(acknowledger, sink);
+    this.batchSize = batchSize;
+    this.maxLingerNanos = maxLingerMs * 1_000_000L;
+    this.sink = sink;
+  }
+
+  @Override
+  public synchronized void write(List<LiftRide> rides, long deliveryTag) {
+    for (int i = 0; i < rides.size(); i++) {
+      if (deliveryTag <= settledDeliveryTag) {
+        // an earlier part of this delivery failed and it has been requeued as a whole
+        return;
+      }
+      if (pending.isEmpty()) {
+        oldestPendingNanos = System.nanoTime();
+      }
+      LiftRide ride = rides.get(i);
+      pending.put(table.itemKey(ride), ride);
+      highestDeliveryTag = Math.max(highestDeliveryTag, deliveryTag);
+      if (i == rides.size() - 1) {
+        completeDeliveryTag = deliveryTag;
+      }
+
+      if (pending.size() >= batchSize) {
+        flush();
+      }
+    }
+    acks.release();
+  }
+
+  @Override
+  public synchronized void flushIfLingering() {
+    if (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= maxLingerNanos) {
+      flush();
+    }
+    acks.release();
+  }
+
+  public synchronized void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<LiftRide> rides = new ArrayList<>(pending.values());
+    pending.clear();
+    List<WriteRequest> batch = new ArrayList<>(rides.size());
+    for (LiftRide ride : rides) {
+      batch.add(WriteRequest.builder()
+          .putRequest(PutRequest.builder().item(table.toItem(ride)).build())
+          .build());
+    }
+
+    try {
+      writeBatch(batch);
+      long generation = sink.ridesWritten(rides);
+      if (completeDeliveryTag > settledDeliveryTag) {
+        settledDeliveryTag = completeDeliveryTag;
+        acks.ackWhenApplied(generation, settledDeliveryTag, true);
+      }
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      long deliveryTag = highestDeliveryTag;
+      System.err.println("❌ Failed to write batch up to tag " + deliveryTag + ": " + e.getMessage());
+      settledDeliveryTag = deliveryTag;
+      acks.nack(deliveryTag, true, true);
+    }
+  }
+
+  private void writeBatch(List<WriteRequest> batch) throws InterruptedException {
+    String tableName = table.getTableName();
+    Map<String, List<WriteRequest>> requestItems = Collections.singletonMap(tableName, batch);
+
+    for (int attempt = 0; ; attempt++) {
+      BatchWriteItemResponse response = ddb.batchWriteItem(
+          BatchWriteItemRequest.builder().requestItems(requestItems).build());
+
+      List<WriteRequest> unprocessed = response.hasUnprocessedItems()
+          ? response.unprocessedItems().get(tableName) : null;
+      if (unprocessed == null || unprocessed.isEmpty()) {
+        return;
+      }
+      if (attempt >= MAX_REDRIVE_ATTEMPTS) {
+        throw new IllegalStateException(unprocessed.size() + " items still unprocessed after "
+            + MAX_REDRIVE_ATTEMPTS + " re-drives");
+      }
+      requestItems = Collections.singletonMap(tableName, unprocessed);
+      Thread.sleep(backoffMillis(attempt));
+    }
+  }
+
+  /** Exponential backoff with full jitter. */
+  static long backoffMillis(int attempt) {
+    long cap = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempt, 16));
+    return ThreadLocalRandom.current().nextLong(cap + 1);
+  }
+}
@@ -0,0 +1,60 @@
+package cs6650.hw1;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tells every server's {@link RideReader} which cached answers went stale, by publishing the
+ * written rides to a fanout exchange.
+ *
+ * Writers report rides as they are persisted; {@link #flush()} (driven by the consumer's
+ * scheduler) keeps one ride per skier/day, since that is all the reader keys on, and sends them
+ * as one batch frame. The channel is only used from the flushing thread.
+ */
+public class CacheInvalidationPublisher {
+  public static final String EXCHANGE = "ski_lift_cache_invalidations";
+
+  private final Channel channel;
+  private final ConcurrentLinkedQueue<LiftRide> written = new ConcurrentLinkedQueue<>();
+
+  public CacheInvalidationPublisher(Connection connection) throws IOException {
+    this.channel = connection.createChannel();
+    channel.exchangeDeclare(EXCHANGE, "fanout", true);
+  }
+
+  public void ridesWritten(List<LiftRide> rides) {
+    written.addAll(rides);
+  }
+
+  public void flush() {
+    Map<String, LiftRide> distinct = new LinkedHashMap<>();
+    for (LiftRide ride; (ride = written.poll()) != null; ) {
+      distinct.putIfAbsent(ride.getResortID() + ":" + ride.getSeasonID() + ":" + ride.getDayID()
+          + ":" + ride.getSkierID(), ride);
+    }
+    if (distinct.isEmpty()) {
+      return;
+    }
+    List<LiftRide> rides = new ArrayList<>(distinct.values());
+    byte[] frame = new byte[LiftRideCodec.BATCH_HEADER_SIZE + rides.size() * LiftRideCodec.ENCODED_SIZE];
+    LiftRideCodec.putInt(frame, 0, rides.size());
+    for (int i = 0; i < rides.size(); i++) {
+      LiftRide ride = rides.get(i);
+      LiftRideCodec.encodeInto(frame, LiftRideCodec.BATCH_HEADER_SIZE + i * LiftRideCodec.ENCODED_SIZE,
+          ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID(), ride.getLiftID(), ride.getTime());
+    }
+    try {
+      channel.basicPublish(EXCHANGE, "", LiftRideCodec.BATCH_PROPERTIES, frame);
+    } catch (IOException e) {
+      // readers fall back to the cache TTL
+      System.err.println("❌ Failed to publish " + rides.size() + " cache invalidations: " + e.getMessage());
+    }
+  }
+}
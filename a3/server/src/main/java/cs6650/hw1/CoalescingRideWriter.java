@@ -0,0 +1,170 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges the rides of one RabbitMQ channel per skier/day before they reach DynamoDB.
+ *
+ * Rides are buffered by skier/day (and resort and write shard, see {@link RideTable#partitionKey});
+ * a flush turns every buffered skier/day into one {@link RideTable#toMergedUpdate} UpdateItem, run
+ * concurrently on the shared {@code updaters} pool. A skier riding 30 lifts inside the window
+ * costs one write instead of 30. The buffer is flushed when it holds {@code maxBufferedRides}
+ * rides, which bounds its memory (a flush runs on the dispatch thread, so the channel waits), or
+ * when its oldest ride has waited {@code windowMs}.
+ *
+ * Deliveries are settled as in {@link BatchRideWriter}: once every update of a flush succeeded,
+ * the rides go to {@code sink}, and once the sink has applied them the channel is acked with
+ * multiple=true up to the highest delivery tag whose rides are all written. If any update fails,
+ * every delivery the flush touches is nacked and requeued; the merged items extend a string set,
+ * so writing a ride twice leaves one copy.
+ *
+ * All methods are synchronized: deliveries arrive on the channel's dispatch thread while
+ * {@link #flushIfLingering()} is driven by a scheduler with a thread per channel, so one slow
+ * flush does not hold back the other channels' windows.
+ */
+public class CoalescingRideWriter implements RideWriter {
+  private final DynamoDbClient ddb;
+  private final RideTable table;
+  private final AckGate acks;
+  private final ExecutorService updaters;
+  private final int maxBufferedRides;
+  private final long windowNanos;
+  private final Counters counters;
+  private final RideSink sink;
+
+  // skier/day -> its rides keyed by sort key, so a duplicate ride is written once
+  private final Map<String, Map<String, LiftRide>> pending = new LinkedHashMap<>();
+  private int bufferedRides;
+  private long highestDeliveryTag = -1;
+  // highest tag whose rides are all in pending or already written
+  private long completeDeliveryTag = -1;
+  // highest tag already acked or nacked
+  private long settledDeliveryTag = -1;
+  private long oldestPendingNanos;
+
+  public CoalescingRideWriter(DynamoDbClient ddb, RideTable table, Acknowledger acknowledger,
+      ExecutorService updaters, int maxBufferedRides, long windowMs, Counters counters,
+      RideSink sink) {
+    if (maxBufferedRides < 1) {
+      throw new IllegalArgumentException("maxBufferedRides must be positive");
+    }
+    this.ddb = ddb;
+    this.table = table;
+    this.acks = new AckGate(acknowledger, sink);
+    this.updaters = updaters;
+    this.maxBufferedRides = maxBufferedRides;
+    this.windowNanos = windowMs * 1_000_000L;
+    this.counters = counters;
+    this.sink = sink;
+  }
+
+  @Override
+  public synchronized void write(List<LiftRide> rides, long deliveryTag) {
+    for (int i = 0; i < rides.size(); i++) {
+      if (deliveryTag <= settledDeliveryTag) {
+        // an earlier part of this delivery failed and it has been requeued as a whole
+        return;
+      }
+      if (pending.isEmpty()) {
+        oldestPendingNanos = System.nanoTime();
+      }
+      LiftRide ride = rides.get(i);
+      Map<String, LiftRide> skierDay = pending.get(key(ride));
+      if (skierDay == null) {
+        pending.put(key(ride), skierDay = new LinkedHashMap<>());
+      }
+      if (skierDay.put(RideTable.sortKey(ride), ride) == null) {
+        bufferedRides++;
+      }
+      highestDeliveryTag = Math.max(highestDeliveryTag, deliveryTag);
+      if (i == rides.size() - 1) {
+        completeDeliveryTag = deliveryTag;
+      }
+
+      if (bufferedRides >= maxBufferedRides) {
+        flush();
+      }
+    }
+    acks.release();
+  }
+
+  @Override
+  public synchronized void flushIfLingering() {
+    if (!pending.isEmpty() && System.nanoTime() - oldestPendingNanos >= windowNanos) {
+      flush();
+    }
+    acks.release();
+  }
+
+  public synchronized void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+    List<LiftRide> rides = new ArrayList<>(bufferedRides);
+    List<Callable<Double>> updates = new ArrayList<>(pending.size());
+    for (Map<String, LiftRide> skierDay : pending.values()) {
+      List<LiftRide> merged = new ArrayList<>(skierDay.values());
+      rides.addAll(merged);
+      updates.add(() -> {
+        UpdateItemResponse response = ddb.updateItem(table.toMergedUpdate(merged));
+        return response.consumedCapacity() == null ? 0.0 : response.consumedCapacity().capacityUnits();
+      });
+    }
+    pending.clear();
+    bufferedRides = 0;
+
+    try {
+      double capacityUnits = 0;
+      for (Future<Double> result : updaters.invokeAll(updates)) {
+        capacityUnits += result.get();
+      }
+      long generation = sink.ridesWritten(rides);
+      if (completeDeliveryTag > settledDeliveryTag) {
+        settledDeliveryTag = completeDeliveryTag;
+        acks.ackWhenApplied(generation, settledDeliveryTag, true);
+      }
+      counters.ridesIn.add(rides.size());
+      counters.writesOut.add(updates.size());
+      counters.capacityUnits.add(capacityUnits);
+    } catch (Exception e) {
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+      }
+      Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+      long deliveryTag = highestDeliveryTag;
+      System.err.println("❌ Failed to write merged rides up to tag " + deliveryTag + ": " + cause.getMessage());
+      settledDeliveryTag = deliveryTag;
+      acks.nack(deliveryTag, true, true);
+    }
+  }
+
+  private String key(LiftRide ride) {
+    return table.partitionKey(ride) + "#" + ride.getResortID();
+  }
+
+  /**
+   * Rides in, DynamoDB requests out and the write capacity units they consumed, summed over every
+   * writer that shares it. A merged item costs a WCU per started KB, so rides per WCU is the
+   * figure to size capacity with.
+   */
+  public static final class Counters {
+    final LongAdder ridesIn = new LongAdder();
+    final LongAdder writesOut = new LongAdder();
+    final DoubleAdder capacityUnits = new DoubleAdder();
+
+    /** e.g. "12,000 rides in 800 writes (15.0x coalescing), 1,000 WCU (12.0 rides/WCU)" */
+    public String report() {
+      long rides = ridesIn.sum();
+      long writes = writesOut.sum();
+      double units = capacityUnits.sum();
+      return String.format("%,d rides in %,d writes (%.1fx coalescing), %,.0f WCU (%.1f rides/WCU)", rides, writes,
+          writes == 0 ? 0.0 : (double) rides / writes, units, units == 0 ? 0.0 : rides / units);
+    }
+  }
+}
@@ -0,0 +1,350 @@
+package cs6650.hw1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming, byte-level parser for flat JSON objects whose interesting members are ints,
+ * e.g. {"skierID": 12, "liftID": 7, "time": 217}, or for an array of such objects read one
+ * element at a time ({@link #beginArray} / {@link #nextObject}).
+ *
+ * Only the configured field names are extracted; every other member is skipped without being
+ * materialized. Numbers may be bare or quoted. An instance owns a fixed read buffer and is reused
+ * across requests (one per thread), so parsing does not allocate.
+ *
+ * Malformed JSON raises {@link IllegalArgumentException}; a configured field holding something
+ * other than an int raises {@link NumberFormatException}, but only once the rest of its object
+ * has been read, so in array mode {@link #nextObject} can go on with the next element.
+ */
+final class IntFieldJsonParser {
+  private static final int EOF = -1;
+  private static final int MAX_DEPTH = 64;
+
+  private final byte[][] names;
+  private final int[] values;
+  private long seen;
+
+  private final byte[] buf = new byte[512];
+  private int pos;
+  private int limit;
+  private InputStream in;
+  // array mode: elements returned so far
+  private int elements;
+
+  IntFieldJsonParser(String... fieldNames) {
+    if (fieldNames.length > 64) {
+      throw new IllegalArgumentException("At most 64 fields are supported");
+    }
+    names = new byte[fieldNames.length][];
+    for (int i = 0; i < fieldNames.length; i++) {
+      names[i] = fieldNames[i].getBytes(StandardCharsets.US_ASCII);
+    }
+    values = new int[fieldNames.length];
+  }
+
+  /**
+   * Parses a whole document consisting of a single object.
+   */
+  void parseObject(InputStream stream) throws IOException {
+    in = stream;
+    pos = 0;
+    limit = 0;
+    try {
+      readObject(nextToken());
+      if (nextToken() != EOF) {
+        throw malformed("trailing content after object");
+      }
+    } finally {
+      in = null;
+    }
+  }
+
+  /**
+   * Starts reading a document consisting of a single array of objects; call {@link #nextObject}
+   * until it returns false.
+   */
+  void beginArray(InputStream stream) throws IOException {
+    in = stream;
+    pos = 0;
+    limit = 0;
+    elements = 0;
+    if (nextToken() != '[') {
+      in = null;
+      throw malformed("expected '['");
+    }
+  }
+
+  /**
+   * Parses the next array element into the field values.
+   *
+   * @return false once the closing ']' (followed only by whitespace) has been read
+   */
+  boolean nextObject() throws IOException {
+    if (in == null) {
+      return false;
+    }
+    boolean done = false;
+    try {
+      int c = nextToken();
+      if (c == ']') {
+        if (nextToken() != EOF) {
+          throw malformed("trailing content after array");
+        }
+        done = true;
+        return false;
+      }
+      if (elements > 0) {
+        if (c != ',') {
+          throw malformed("expected ',' or ']'");
+        }
+        c = nextToken();
+      }
+      readObject(c);
+      elements++;
+      return true;
+    } catch (NumberFormatException e) {
+      // the element was read to its end; the array goes on
+      elements++;
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      done = true;
+      throw e;
+    } finally {
+      if (done) {
+        in = null;
+      }
+    }
+  }
+
+  boolean has(int field) {
+    return (seen & (1L << field)) != 0;
+  }
+
+  boolean hasAll() {
+    return seen == (names.length == 64 ? -1L : (1L << names.length) - 1);
+  }
+
+  int get(int field) {
+    return values[field];
+  }
+
+  private void readObject(int c) throws IOException {
+    seen = 0;
+    if (c != '{') {
+      throw malformed("expected '{'");
+    }
+    c = nextToken();
+    if (c == '}') {
+      return;
+    }
+    NumberFormatException badNumber = null;
+    while (true) {
+      if (c != '"') {
+        throw malformed("expected member name");
+      }
+      int field = readName();
+      if (nextToken() != ':') {
+        throw malformed("expected ':'");
+      }
+      c = nextToken();
+      if (field >= 0) {
+        try {
+          values[field] = readInt(c);
+          seen |= 1L << field;
+        } catch (NumberFormatException e) {
+          badNumber = e;
+        }
+      } else {
+        skipValue(c);
+      }
+      c = nextToken();
+      if (c == '}') {
+        if (badNumber != null) {
+          throw badNumber;
+        }
+        return;
+      }
+      if (c != ',') {
+        throw malformed("expected ',' or '}'");
+      }
+      c = nextToken();
+    }
+  }
+
+  /** Reads a member name (opening quote already consumed) and returns its field index or -1. */
+  private int readName() throws IOException {
+    // candidates still matching, as a bit set; narrowed one byte at a time
+    long candidates = names.length == 64 ? -1L : (1L << names.length) - 1;
+    int length = 0;
+    while (true) {
+      int c = read();
+      if (c == EOF) {
+        throw malformed("unterminated string");
+      }
+      if (c == '"') {
+        break;
+      }
+      if (c == '\\') {
+        // escaped names never match a plain ASCII field name
+        read();
+        candidates = 0;
+      }
+      for (long m = candidates; m != 0; m &= m - 1) {
+        int i = Long.numberOfTrailingZeros(m);
+        if (length >= names[i].length || names[i][length] != c) {
+          candidates &= ~(1L << i);
+        }
+      }
+      length++;
+    }
+    for (long m = candidates; m != 0; m &= m - 1) {
+      int i = Long.numberOfTrailingZeros(m);
+      if (names[i].length == length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Reads an int member value; on NumberFormatException the whole value has still been consumed. */
+  private int readInt(int c) throws IOException {
+    boolean quoted = c == '"';
+    if (quoted) {
+      c = read();
+    }
+    boolean negative = c == '-';
+    if (negative) {
+      c = read();
+    }
+    String problem = c < '0' || c > '9' ? "Expected an integer value" : null;
+    long value = 0;
+    while (c >= '0' && c <= '9') {
+      if (value <= (long) Integer.MAX_VALUE + 1) {
+        value = value * 10 + (c - '0');
+      }
+      c = read();
+    }
+    if (negative) {
+      value = -value;
+    }
+    if (problem == null && (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)) {
+      problem = "Integer value out of range";
+    }
+    if (quoted) {
+      if (c != '"') {
+        problem = "Expected an integer value";
+        unread(c);
+        skipString();
+      }
+    } else if (problem != null && (c == '{' || c == '[')) {
+      skipValue(c);
+    } else {
+      if (isScalarChar(c)) {
+        // a fraction, exponent or literal
+        problem = "Expected an integer value";
+        while (isScalarChar(c = read())) {
+          // consume the rest of it
+        }
+      }
+      unread(c);
+    }
+    if (problem != null) {
+      throw new NumberFormatException(problem);
+    }
+    return (int) value;
+  }
+
+  private void skipValue(int c) throws IOException {
+    int depth = 0;
+    while (true) {
+      switch (c) {
+        case '{':
+        case '[':
+          if (++depth > MAX_DEPTH) {
+            throw malformed("nesting too deep");
+          }
+          break;
+        case '}':
+        case ']':
+          depth--;
+          break;
+        case '"':
+          skipString();
+          break;
+        case ',':
+        case ':':
+          if (depth == 0) {
+            throw malformed("expected a value");
+          }
+          break;
+        case EOF:
+          throw malformed("unexpected end of input");
+        default:
+          if (!isScalarChar(c)) {
+            throw malformed("unexpected character '" + (char) c + "'");
+          }
+          while (isScalarChar(c = read())) {
+            // consume the rest of the number or literal
+          }
+          unread(c);
+      }
+      if (depth <= 0) {
+        if (depth < 0) {
+          throw malformed("unbalanced brackets");
+        }
+        return;
+      }
+      c = nextToken();
+    }
+  }
+
+  private void skipString() throws IOException {
+    while (true) {
+      int c = read();
+      if (c == '"') {
+        return;
+      }
+      if (c == '\\') {
+        c = read();
+      }
+      if (c == EOF) {
+        throw malformed("unterminated string");
+      }
+    }
+  }
+
+  private static boolean isScalarChar(int c) {
+    return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || c == '-' || c == '+' || c == '.' || c == 'E';
+  }
+
+  private int nextToken() throws IOException {
+    int c;
+    do {
+      c = read();
+    } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+    return c;
+  }
+
+  private int read() throws IOException {
+    if (pos == limit) {
+      int n = in.read(buf, 0, buf.length);
+      if (n <= 0) {
+        return EOF;
+      }
+      pos = 0;
+      limit = n;
+    }
+    return buf[pos++] & 0xFF;
+  }
+
+  private void unread(int c) {
+    if (c != EOF) {
+      pos--;
+    }
+  }
+
+  private static IllegalArgumentException malformed(String reason) {
+    return new IllegalArgumentException("Malformed JSON: " + reason);
+  }
+}
@@ -0,0 +1,52 @@
+package cs6650.hw1;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Subscribes the web app's {@link RideReader} to SkierConsumer's cache invalidations when the app
+ * starts, so cached answers of every servlet are dropped on write no matter which servlet is
+ * loaded first (SkierServlet is not load-on-startup by default).
+ *
+ * Context param: rabbitHost (the broker SkierServlet publishes to). If the broker cannot be
+ * reached the app still starts, and cached answers only expire by their TTL.
+ */
+public class InvalidationSubscriber implements ServletContextListener {
+  private Connection connection;
+
+  @Override
+  public void contextInitialized(ServletContextEvent event) {
+    ServletContext context = event.getServletContext();
+    RideReader reader = RideReader.forContext(context);
+    try {
+      ConnectionFactory factory = new ConnectionFactory();
+      String rabbitHost = context.getInitParameter("rabbitHost");
+      factory.setHost(rabbitHost == null || rabbitHost.trim().isEmpty()
+          ? SkierServlet.DEFAULT_RABBIT_HOST : rabbitHost.trim());
+      factory.setPort(5672);
+      factory.setUsername("admin");
+      factory.setPassword("admin123");
+
+      connection = factory.newConnection();
+      reader.subscribeInvalidations(connection);
+      System.out.println("Subscribed read cache to " + CacheInvalidationPublisher.EXCHANGE);
+    } catch (Exception e) {
+      System.err.println("❌ Cache invalidations unavailable, relying on the TTL: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void contextDestroyed(ServletContextEvent event) {
+    try {
+      if (connection != null && connection.isOpen()) {
+        connection.close();
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package cs6650.hw1;
+
+import com.google.gson.JsonObject;
+
+/**
+ * A single lift ride as it travels from SkierServlet through RabbitMQ into SkierConsumer.
+ */
+public class LiftRide {
+  private final int resortID;
+  private final int seasonID;
+  private final int dayID;
+  private final int skierID;
+  private final int liftID;
+  private final int time;
+
+  public LiftRide(int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    this.resortID = resortID;
+    this.seasonID = seasonID;
+    this.dayID = dayID;
+    this.skierID = skierID;
+    this.liftID = liftID;
+    this.time = time;
+  }
+
+  public static LiftRide fromJson(JsonObject json) {
+    return new LiftRide(
+        json.get("resortID").getAsInt(),
+        json.get("seasonID").getAsInt(),
+        json.get("dayID").getAsInt(),
+        json.get("skierID").getAsInt(),
+        json.get("liftID").getAsInt(),
+        json.get("time").getAsInt());
+  }
+
+  public int getResortID() { return resortID; }
+  public int getSeasonID() { return seasonID; }
+  public int getDayID() { return dayID; }
+  public int getSkierID() { return skierID; }
+  public int getLiftID() { return liftID; }
+  public int getTime() { return time; }
+
+  public int getVertical() { return verticalOf(liftID); }
+
+  /** Vertical metres of one ride on a lift: 10 per lift number. */
+  public static int verticalOf(int liftID) {
+    return liftID * 10;
+  }
+
+  @Override
+  public String toString() {
+    return "LiftRide{resortID=" + resortID + ", seasonID=" + seasonID + ", dayID=" + dayID
+        + ", skierID=" + skierID + ", liftID=" + liftID + ", time=" + time + "}";
+  }
+}
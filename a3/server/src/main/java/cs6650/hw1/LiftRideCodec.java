@@ -0,0 +1,128 @@
+package cs6650.hw1;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.rabbitmq.client.AMQP;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Wire formats for lift rides on the ski_lift_rides queue.
+ *
+ * The binary form is six big-endian ints (24 bytes) in the order resortID, seasonID, dayID,
+ * skierID, liftID, time. A batch frame is a big-endian int ride count followed by that many
+ * binary rides. Messages carry their format in the AMQP content type so the formats can share the
+ * queue during rollout; messages without a content type are the original JSON.
+ */
+public final class LiftRideCodec {
+  public static final String CONTENT_TYPE_JSON = "application/json";
+  public static final String CONTENT_TYPE_BINARY = "application/x-lift-ride";
+  public static final String CONTENT_TYPE_BATCH = "application/x-lift-ride-batch";
+
+  public static final int ENCODED_SIZE = 24;
+  public static final int BATCH_HEADER_SIZE = 4;
+
+  public static final AMQP.BasicProperties JSON_PROPERTIES =
+      new AMQP.BasicProperties.Builder().contentType(CONTENT_TYPE_JSON).build();
+  public static final AMQP.BasicProperties BINARY_PROPERTIES =
+      new AMQP.BasicProperties.Builder().contentType(CONTENT_TYPE_BINARY).build();
+  public static final AMQP.BasicProperties BATCH_PROPERTIES =
+      new AMQP.BasicProperties.Builder().contentType(CONTENT_TYPE_BATCH).build();
+
+  private LiftRideCodec() {}
+
+  public static byte[] encode(int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    byte[] body = new byte[ENCODED_SIZE];
+    encodeInto(body, 0, resortID, seasonID, dayID, skierID, liftID, time);
+    return body;
+  }
+
+  /** Writes one binary ride at {@code offset}, e.g. into a batch frame being assembled. */
+  public static void encodeInto(byte[] buf, int offset,
+      int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    putInt(buf, offset, resortID);
+    putInt(buf, offset + 4, seasonID);
+    putInt(buf, offset + 8, dayID);
+    putInt(buf, offset + 12, skierID);
+    putInt(buf, offset + 16, liftID);
+    putInt(buf, offset + 20, time);
+  }
+
+  public static byte[] encode(LiftRide ride) {
+    return encode(ride.getResortID(), ride.getSeasonID(), ride.getDayID(),
+        ride.getSkierID(), ride.getLiftID(), ride.getTime());
+  }
+
+  public static LiftRide decode(byte[] body) {
+    if (body.length != ENCODED_SIZE) {
+      throw new IllegalArgumentException("Binary lift ride must be " + ENCODED_SIZE + " bytes, got " + body.length);
+    }
+    return decodeAt(body, 0);
+  }
+
+  private static LiftRide decodeAt(byte[] buf, int offset) {
+    return new LiftRide(getInt(buf, offset), getInt(buf, offset + 4), getInt(buf, offset + 8),
+        getInt(buf, offset + 12), getInt(buf, offset + 16), getInt(buf, offset + 20));
+  }
+
+  public static List<LiftRide> decodeBatch(byte[] body) {
+    int count = body.length >= BATCH_HEADER_SIZE ? getInt(body, 0) : -1;
+    if (count < 0 || body.length != BATCH_HEADER_SIZE + (long) count * ENCODED_SIZE) {
+      throw new IllegalArgumentException("Malformed lift ride batch of " + body.length + " bytes");
+    }
+    List<LiftRide> rides = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      rides.add(decodeAt(body, BATCH_HEADER_SIZE + i * ENCODED_SIZE));
+    }
+    return rides;
+  }
+
+  public static byte[] encodeJson(int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    JsonObject message = new JsonObject();
+    message.addProperty("resortID", resortID);
+    message.addProperty("seasonID", seasonID);
+    message.addProperty("dayID", dayID);
+    message.addProperty("skierID", skierID);
+    message.addProperty("liftID", liftID);
+    message.addProperty("time", time);
+    return message.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static LiftRide decodeJson(byte[] body) {
+    String message = new String(body, StandardCharsets.UTF_8);
+    return LiftRide.fromJson(JsonParser.parseString(message).getAsJsonObject());
+  }
+
+  /** Decodes a single-ride delivery according to its content type. */
+  public static LiftRide decode(String contentType, byte[] body) {
+    if (CONTENT_TYPE_BINARY.equals(contentType)) {
+      return decode(body);
+    }
+    return decodeJson(body);
+  }
+
+  /** Decodes any delivery, single ride or batch frame, into its rides. */
+  public static List<LiftRide> decodeAll(String contentType, byte[] body) {
+    if (CONTENT_TYPE_BATCH.equals(contentType)) {
+      return decodeBatch(body);
+    }
+    return Collections.singletonList(decode(contentType, body));
+  }
+
+  static void putInt(byte[] buf, int offset, int value) {
+    buf[offset] = (byte) (value >>> 24);
+    buf[offset + 1] = (byte) (value >>> 16);
+    buf[offset + 2] = (byte) (value >>> 8);
+    buf[offset + 3] = (byte) value;
+  }
+
+  static int getInt(byte[] buf, int offset) {
+    return (buf[offset] & 0xFF) << 24
+        | (buf[offset + 1] & 0xFF) << 16
+        | (buf[offset + 2] & 0xFF) << 8
+        | (buf[offset + 3] & 0xFF);
+  }
+}
@@ -0,0 +1,44 @@
+package cs6650.hw1;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.LongSupplier;
+
+/**
+ * Minimal single-threaded microbenchmark harness: warms up, then reports ns/op and bytes
+ * allocated per op (from the HotSpot per-thread allocation counter, like JMH's -prof gc).
+ */
+final class Microbench {
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // results are folded in here so the JIT cannot eliminate the measured work
+  private static volatile long sink;
+  // objects handed to consume() really escape, as they would into basicPublish or a writer
+  private static Object escaped;
+
+  private Microbench() {}
+
+  static long consume(Object result) {
+    escaped = result;
+    return 1;
+  }
+
+  static void run(String name, int ops, LongSupplier op) {
+    long acc = 0;
+    for (int i = 0; i < ops; i++) {
+      acc += op.getAsLong();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+    long start = System.nanoTime();
+    for (int i = 0; i < ops; i++) {
+      acc += op.getAsLong();
+    }
+    long elapsed = System.nanoTime() - start;
+    long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+    sink += acc;
+
+    System.out.printf("%-36s %10.1f ns/op %10.1f B/op\n", name, (double) elapsed / ops, (double) bytes / ops);
+  }
+}
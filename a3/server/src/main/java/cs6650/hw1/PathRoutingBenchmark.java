@@ -0,0 +1,36 @@
+package cs6650.hw1;
+
+/**
+ * Routing a lift ride POST path: the old {@code split("/")} + {@code Integer.parseInt} vs
+ * {@link PathTemplate}.
+ *
+ * Usage: -Dbench.ops=5000000
+ */
+public class PathRoutingBenchmark {
+
+  public static void main(String[] args) {
+    int ops = Integer.getInteger("bench.ops", 5_000_000);
+
+    String path = "/7/seasons/2025/days/1/skiers/48213";
+    PathTemplate template = PathTemplate.compile("/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}");
+    int[] params = new int[template.paramCount()];
+
+    for (int round = 1; round <= 2; round++) {
+      System.out.println("--- round " + round + " ---");
+      Microbench.run("split + parseInt (before)", ops, () -> {
+        String[] parts = path.split("/");
+        if (parts.length != 8) {
+          return 0;
+        }
+        return Integer.parseInt(parts[1]) + Integer.parseInt(parts[3])
+            + Integer.parseInt(parts[5]) + Integer.parseInt(parts[7]);
+      });
+      Microbench.run("PathTemplate.match (after)", ops, () -> {
+        if (!template.match(path, params)) {
+          return 0;
+        }
+        return params[0] + params[1] + params[2] + params[3];
+      });
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package cs6650.hw1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A precompiled URL path template such as {@code /{resortID}/seasons/{seasonID}/days/{dayID}}.
+ *
+ * Matching walks the path once, compares literal segments in place and parses {@code {param}}
+ * segments straight into an int array, so a match allocates nothing. One trailing slash is
+ * tolerated, as it was with {@code pathInfo.split("/")}.
+ */
+final class PathTemplate {
+  private final String template;
+  // one entry per segment: the literal text, or null for an int parameter
+  private final String[] literals;
+  private final int paramCount;
+
+  private PathTemplate(String template, String[] literals, int paramCount) {
+    this.template = template;
+    this.literals = literals;
+    this.paramCount = paramCount;
+  }
+
+  static PathTemplate compile(String template) {
+    if (!template.startsWith("/")) {
+      throw new IllegalArgumentException("Template must start with '/': " + template);
+    }
+    List<String> segments = new ArrayList<>();
+    int params = 0;
+    for (String segment : template.substring(1).split("/", -1)) {
+      if (segment.startsWith("{") && segment.endsWith("}")) {
+        segments.add(null);
+        params++;
+      } else if (segment.isEmpty() || segment.indexOf('{') >= 0 || segment.indexOf('}') >= 0) {
+        throw new IllegalArgumentException("Bad segment '" + segment + "' in " + template);
+      } else {
+        segments.add(segment);
+      }
+    }
+    return new PathTemplate(template, segments.toArray(new String[0]), params);
+  }
+
+  int paramCount() {
+    return paramCount;
+  }
+
+  /**
+   * Matches {@code path} (e.g. a servlet's pathInfo) against the template.
+   *
+   * @param params receives the parameter values in template order; length &gt;= paramCount()
+   * @return false if the path has a different shape or a literal segment differs
+   * @throws NumberFormatException if the shape matches but a parameter is not an int
+   */
+  boolean match(String path, int[] params) {
+    if (path == null || path.isEmpty() || path.charAt(0) != '/') {
+      return false;
+    }
+    int end = path.length();
+    if (end > 1 && path.charAt(end - 1) == '/') {
+      end--;
+    }
+
+    boolean badNumber = false;
+    int start = 1;
+    int param = 0;
+    for (int i = 0; i < literals.length; i++) {
+      if (start > end) {
+        return false;
+      }
+      int slash = path.indexOf('/', start);
+      int segmentEnd = (slash < 0 || slash > end) ? end : slash;
+
+      String literal = literals[i];
+      if (literal != null) {
+        if (segmentEnd - start != literal.length() || !path.regionMatches(start, literal, 0, literal.length())) {
+          return false;
+        }
+      } else if (!parseInt(path, start, segmentEnd, params, param++)) {
+        // keep going: a different shape should still read as "no match", not "bad number"
+        badNumber = true;
+      }
+      start = segmentEnd + 1;
+    }
+    if (start <= end) {
+      return false;
+    }
+    if (badNumber) {
+      throw new NumberFormatException("Non-integer path parameter in " + path + " for " + template);
+    }
+    return true;
+  }
+
+  private static boolean parseInt(String s, int start, int end, int[] out, int index) {
+    if (start >= end) {
+      return false;
+    }
+    boolean negative = false;
+    char first = s.charAt(start);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      if (++start == end) {
+        return false;
+      }
+    }
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+      value = value * 10 + (c - '0');
+      if (value > (long) Integer.MAX_VALUE + 1) {
+        return false;
+      }
+    }
+    if (negative) {
+      value = -value;
+    } else if (value > Integer.MAX_VALUE) {
+      return false;
+    }
+    out[index] = (int) value;
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return template;
+  }
+}
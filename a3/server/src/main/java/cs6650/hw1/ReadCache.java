@@ -0,0 +1,169 @@
+package cs6650.hw1;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read-through cache with a time-to-live and LRU eviction.
+ *
+ * Keys are spread over lock-striped, access-ordered LinkedHashMaps, each holding at most
+ * maxEntries / stripes entries. A value loaded while its stripe saw an invalidation is returned
+ * but not cached, so a load that raced a write cannot pin the stale value until the TTL.
+ * Loads run outside the lock, and concurrent misses on one key share a single load: every
+ * invalidation of a hot key would otherwise send one query per waiting reader. An invalidation
+ * also detaches a load in flight, so readers arriving after it start a fresh one.
+ * A loader returning null is not cached (e.g. "not found").
+ */
+public class ReadCache<K, V> {
+  private static final int STRIPES = 16;
+
+  private final long ttlNanos;
+  private final Stripe<K, V>[] stripes;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder expirations = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public ReadCache(int maxEntries, long ttlMillis) {
+    if (maxEntries < STRIPES) {
+      throw new IllegalArgumentException("maxEntries must be at least " + STRIPES);
+    }
+    this.ttlNanos = ttlMillis * 1_000_000L;
+    this.stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe<>(maxEntries / STRIPES, evictions);
+    }
+  }
+
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Stripe<K, V> stripe = stripeFor(key);
+    long generation;
+    CompletableFuture<V> load;
+    boolean leader;
+    synchronized (stripe) {
+      Entry<V> entry = stripe.map.get(key);
+      if (entry != null) {
+        if (System.nanoTime() - entry.expiresAtNanos < 0) {
+          hits.increment();
+          return entry.value;
+        }
+        stripe.map.remove(key);
+        expirations.increment();
+      }
+      misses.increment();
+      CompletableFuture<V> inFlight = stripe.loading.get(key);
+      generation = stripe.generation;
+      leader = inFlight == null;
+      if (leader) {
+        stripe.loading.put(key, load = new CompletableFuture<>());
+      } else {
+        load = inFlight;
+      }
+    }
+
+    if (!leader) {
+      try {
+        return load.join();
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        throw cause instanceof RuntimeException ? (RuntimeException) cause : e;
+      }
+    }
+    V value;
+    try {
+      value = loader.apply(key);
+    } catch (RuntimeException | Error e) {
+      synchronized (stripe) {
+        stripe.loading.remove(key, load);
+      }
+      load.completeExceptionally(e);
+      throw e;
+    }
+    synchronized (stripe) {
+      stripe.loading.remove(key, load);
+      if (value != null && stripe.generation == generation) {
+        stripe.map.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+      }
+    }
+    load.complete(value);
+    return value;
+  }
+
+  public void invalidate(K key) {
+    Stripe<K, V> stripe = stripeFor(key);
+    synchronized (stripe) {
+      stripe.generation++;
+      stripe.loading.remove(key);
+      if (stripe.map.remove(key) != null) {
+        invalidations.increment();
+      }
+    }
+  }
+
+  public int size() {
+    int size = 0;
+    for (Stripe<K, V> stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.map.size();
+      }
+    }
+    return size;
+  }
+
+  public double hitRate() {
+    long h = hits.sum();
+    long total = h + misses.sum();
+    return total == 0 ? 0.0 : (double) h / total;
+  }
+
+  /** Counters as a JSON object, served by GET /skiers/cache. */
+  public String statsJson() {
+    return String.format("{\"entries\": %d, \"hits\": %d, \"misses\": %d, \"hitRate\": %.4f, "
+            + "\"evictions\": %d, \"expirations\": %d, \"invalidations\": %d}",
+        size(), hits.sum(), misses.sum(), hitRate(), evictions.sum(), expirations.sum(), invalidations.sum());
+  }
+
+  private Stripe<K, V> stripeFor(K key) {
+    int h = key.hashCode();
+    return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+  }
+
+  private static final class Entry<V> {
+    final V value;
+    final long expiresAtNanos;
+
+    Entry(V value, long expiresAtNanos) {
+      this.value = value;
+      this.expiresAtNanos = expiresAtNanos;
+    }
+  }
+
+  private static final class Stripe<K, V> {
+    final LinkedHashMap<K, Entry<V>> map;
+    // loads in flight, joined by concurrent misses on the same key
+    final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+    // bumped on every invalidation, guarded by the stripe's monitor
+    long generation;
+
+    Stripe(int capacity, LongAdder evictions) {
+      this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+          if (size() > capacity) {
+            evictions.increment();
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+  }
+}
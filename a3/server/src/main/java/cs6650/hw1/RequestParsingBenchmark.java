@@ -0,0 +1,53 @@
+package cs6650.hw1;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation and time per POST body parse: the old JsonParser tree vs {@link IntFieldJsonParser}.
+ * Both read from a rewindable in-memory stream so only the parsing itself is measured.
+ *
+ * Usage: -Dbench.ops=2000000
+ */
+public class RequestParsingBenchmark {
+
+  public static void main(String[] args) {
+    int ops = Integer.getInteger("bench.ops", 2_000_000);
+
+    // what LoadTester sends: a Gson-serialized SkierEvent
+    String payload = "{\"skierID\":48213,\"resortID\":7,\"liftID\":23,\"seasonID\":2025,\"dayID\":1,\"time\":217}";
+    byte[] bytes = payload.getBytes(StandardCharsets.UTF_8);
+
+    CharArrayReader reader = new CharArrayReader(payload.toCharArray());
+    ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
+    IntFieldJsonParser parser = new IntFieldJsonParser("skierID", "liftID", "time");
+
+    for (int round = 1; round <= 2; round++) {
+      System.out.println("--- round " + round + " ---");
+      Microbench.run("JsonParser.parseReader (before)", ops, () -> {
+        try {
+          reader.reset();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+        return json.get("skierID").getAsInt() + json.get("liftID").getAsInt() + json.get("time").getAsInt();
+      });
+      Microbench.run("IntFieldJsonParser (after)", ops, () -> {
+        stream.reset();
+        try {
+          parser.parseObject(stream);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        return parser.get(0) + parser.get(1) + parser.get(2);
+      });
+    }
+  }
+}
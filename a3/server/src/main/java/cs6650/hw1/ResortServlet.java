@@ -0,0 +1,56 @@
+package cs6650.hw1;
+
+import com.google.gson.JsonObject;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * GET /resorts/{resortID}/seasons/{seasonID}/day/{dayID}/skiers: number of unique skiers at a
+ * resort on a day, answered through the same cached {@link RideReader} as SkierServlet.
+ */
+@WebServlet(name = "ResortServlet", urlPatterns = {"/resorts/*"})
+public class ResortServlet extends HttpServlet {
+
+  // pathInfo below /resorts/*
+  private static final PathTemplate RESORT_DAY_SKIERS_PATH =
+      PathTemplate.compile("/{resortID}/seasons/{seasonID}/day/{dayID}/skiers");
+  private static final ThreadLocal<int[]> PATH_PARAMS =
+      ThreadLocal.withInitial(() -> new int[RESORT_DAY_SKIERS_PATH.paramCount()]);
+
+  private RideReader reader;
+
+  @Override
+  public void init() throws ServletException {
+    reader = RideReader.forContext(getServletContext());
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+    resp.setContentType("application/json");
+    try {
+      int[] params = PATH_PARAMS.get();
+      if (!RESORT_DAY_SKIERS_PATH.match(req.getPathInfo(), params)) {
+        sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL structure.");
+        return;
+      }
+      resp.setStatus(HttpServletResponse.SC_OK);
+      resp.getWriter().write(reader.uniqueSkiers(params[0], params[1], params[2]));
+    } catch (NumberFormatException e) {
+      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid numerical value in URL");
+    } catch (Exception e) {
+      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal Server Error: " + e.getMessage());
+    }
+  }
+
+  private void sendError(HttpServletResponse resp, int statusCode, String message) throws IOException {
+    resp.setStatus(statusCode);
+    JsonObject errorResponse = new JsonObject();
+    errorResponse.addProperty("error", message);
+    resp.getWriter().write(errorResponse.toString());
+  }
+}
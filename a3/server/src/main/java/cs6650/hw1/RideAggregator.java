@@ -0,0 +1,219 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Folds written rides into {@link AggregateTable} in the background.
+ *
+ * Rides are coalesced in memory per skier/day (vertical and ride count summed), and every
+ * {@link #flush()} turns each touched skier/day into one transactional ADD on its day and season
+ * totals, so a skier riding 30 lifts between flushes costs one write instead of 30. Skiers not yet
+ * counted for a resort/day by this process get one conditional marker write; the seen set is
+ * cleared when it grows past {@code maxSeenSkiers}, which only costs extra (idempotent) marker
+ * attempts.
+ *
+ * Each flush is a generation. The writers hold their acks until {@link #appliedGeneration()}
+ * reaches the generation their rides went into, so rides buffered here when the process dies are
+ * redelivered instead of lost. A failed delta is retried unchanged on the next flush with the
+ * same client request token, so an ADD that committed but timed out is not applied twice (within
+ * DynamoDB's 10 minute token window); new rides of that skier/day wait for the retry to succeed.
+ * A delta that still fails after {@code MAX_ATTEMPTS} flushes (e.g. a ValidationException, or an
+ * IdempotentParameterMismatch once the token expired) is dropped and logged, so that one bad
+ * skier/day cannot hold back the acks of every channel. A redelivered ride is still added again.
+ *
+ * Once a flush has applied its deltas, one ride per updated skier/day is handed to
+ * {@code onApplied} (e.g. to invalidate read caches), so readers never reload a total that is
+ * about to change.
+ */
+public class RideAggregator implements RideSink {
+  // about 10 s of retries at the consumer's flush interval
+  static final int MAX_ATTEMPTS = 10;
+
+  private final DynamoDbClient ddb;
+  private final AggregateTable table;
+  private final ExecutorService writers;
+  private final int maxSeenSkiers;
+  private final Consumer<List<LiftRide>> onApplied;
+
+  // guarded by this
+  private Map<String, Delta> pending = new HashMap<>();
+  private long generation = 1;
+  private volatile long appliedGeneration;
+
+  // only touched by the flushing thread, except for reading generations under the lock
+  private List<Delta> retrying = new ArrayList<>();
+  private final Set<String> seenSkiers = new HashSet<>();
+  private long flushedRides;
+  private long flushedUpdates;
+  private long droppedUpdates;
+
+  public RideAggregator(DynamoDbClient ddb, AggregateTable table, int writerThreads, int maxSeenSkiers,
+      Consumer<List<LiftRide>> onApplied) {
+    this.ddb = ddb;
+    this.table = table;
+    this.maxSeenSkiers = maxSeenSkiers;
+    this.onApplied = onApplied;
+    this.writers = Executors.newFixedThreadPool(writerThreads, r -> {
+      Thread t = new Thread(r, "aggregate-writer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Override
+  public synchronized long ridesWritten(List<LiftRide> rides) {
+    for (LiftRide ride : rides) {
+      String key = key(ride);
+      Delta delta = pending.get(key);
+      if (delta == null) {
+        pending.put(key, delta = new Delta(ride, generation));
+      }
+      delta.vertical += ride.getVertical();
+      delta.rides++;
+    }
+    return generation;
+  }
+
+  @Override
+  public long appliedGeneration() {
+    return appliedGeneration;
+  }
+
+  /** Applies everything buffered so far. Called from a single scheduler thread. */
+  public void flush() {
+    List<Delta> deltas = new ArrayList<>(retrying);
+    synchronized (this) {
+      if (pending.isEmpty() && retrying.isEmpty()) {
+        return;
+      }
+      Map<String, Delta> batch = pending;
+      pending = new HashMap<>();
+      generation++;
+      for (Delta retry : retrying) {
+        // keep the retried delta unchanged so its token stays valid; the new rides wait
+        Delta deferred = batch.remove(key(retry.ride));
+        if (deferred != null) {
+          pending.put(key(retry.ride), deferred);
+        }
+      }
+      deltas.addAll(batch.values());
+    }
+
+    List<Callable<Void>> updates = new ArrayList<>(deltas.size());
+    for (Delta delta : deltas) {
+      LiftRide ride = delta.ride;
+      delta.attempts++;
+      boolean newSkier = seenSkiers.add(key(ride));
+      updates.add(() -> {
+        // the marker first: it is idempotent, the ADD is not
+        if (newSkier) {
+          table.addSkier(ddb, ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID());
+        }
+        table.addVertical(ddb, ride.getSkierID(), ride.getResortID(), ride.getSeasonID(), ride.getDayID(),
+            delta.vertical, delta.rides, delta.clientRequestToken);
+        return null;
+      });
+    }
+
+    List<Future<Void>> results;
+    try {
+      results = writers.invokeAll(updates);
+    } catch (InterruptedException | RuntimeException e) {
+      // the deltas have left pending: keep them for the next flush, same tokens, or they are lost
+      for (Delta delta : deltas) {
+        seenSkiers.remove(key(delta.ride));
+      }
+      synchronized (this) {
+        retrying = deltas;
+      }
+      if (e instanceof InterruptedException) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      throw (RuntimeException) e;
+    }
+
+    List<LiftRide> applied = new ArrayList<>(deltas.size());
+    List<Delta> failed = new ArrayList<>();
+    Throwable failure = null;
+    for (int i = 0; i < results.size(); i++) {
+      Delta delta = deltas.get(i);
+      try {
+        results.get(i).get();
+        applied.add(delta.ride);
+        flushedRides += delta.rides;
+      } catch (InterruptedException | ExecutionException e) {
+        if (e instanceof InterruptedException) {
+          Thread.currentThread().interrupt();
+        }
+        failure = e instanceof ExecutionException ? e.getCause() : e;
+        // the marker may be missing too; retrying it is harmless
+        seenSkiers.remove(key(delta.ride));
+        if (delta.attempts < MAX_ATTEMPTS) {
+          failed.add(delta);
+        } else {
+          droppedUpdates++;
+          LiftRide ride = delta.ride;
+          System.err.println("❌ Dropping aggregate update of skier " + ride.getSkierID() + " at resort "
+              + ride.getResortID() + ", season " + ride.getSeasonID() + ", day " + ride.getDayID() + " (vertical "
+              + delta.vertical + ", " + delta.rides + " rides) after " + delta.attempts + " attempts: "
+              + failure.getMessage());
+        }
+      }
+    }
+    if (seenSkiers.size() > maxSeenSkiers) {
+      seenSkiers.clear();
+    }
+
+    synchronized (this) {
+      retrying = failed;
+      // everything before the oldest outstanding delta is applied; the open generation never is
+      long oldest = generation;
+      for (Delta delta : retrying) {
+        oldest = Math.min(oldest, delta.generation);
+      }
+      for (Delta delta : pending.values()) {
+        oldest = Math.min(oldest, delta.generation);
+      }
+      appliedGeneration = oldest - 1;
+    }
+
+    flushedUpdates += applied.size();
+    if (!applied.isEmpty()) {
+      onApplied.accept(applied);
+    }
+    if (!failed.isEmpty()) {
+      System.err.println("❌ " + failed.size() + " aggregate updates failed, retrying on the next flush: "
+          + failure.getMessage());
+    }
+  }
+
+  /** Rides folded per update so far, e.g. "12,000 rides in 800 updates (15.0x coalescing), 0 dropped". */
+  public String coalescingReport() {
+    return String.format("%,d rides in %,d updates (%.1fx coalescing), %,d dropped", flushedRides, flushedUpdates,
+        flushedUpdates == 0 ? 0.0 : (double) flushedRides / flushedUpdates, droppedUpdates);
+  }
+
+  private static String key(LiftRide ride) {
+    return ride.getSkierID() + "#" + ride.getResortID() + "#" + ride.getSeasonID() + "#" + ride.getDayID();
+  }
+
+  private static final class Delta {
+    final LiftRide ride;
+    // the generation its first ride went into
+    final long generation;
+    final String clientRequestToken = UUID.randomUUID().toString();
+    int attempts;
+    long vertical;
+    long rides;
+
+    Delta(LiftRide ride, long generation) {
+      this.ride = ride;
+      this.generation = generation;
+    }
+  }
+}
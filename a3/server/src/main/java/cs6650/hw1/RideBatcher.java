@@ -0,0 +1,142 @@
+package cs6650.hw1;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates lift rides from all servlet threads into one batch frame and publishes it as a
+ * single broker message once it holds {@code maxRides} rides or its oldest ride is
+ * {@code maxDelayMicros} old.
+ *
+ * Every ride in a frame shares the frame's future, which completes when the broker confirms the
+ * frame. If no publisher channel is free the future fails with {@link RejectedExecutionException}.
+ */
+public class RideBatcher {
+  private static final long STATS_INTERVAL_SECONDS = 10;
+
+  private final RidePublisher publisher;
+  private final int maxRides;
+  private final long maxDelayNanos;
+  private final long acquireTimeoutNanos;
+  private final ScheduledExecutorService timer;
+
+  private Batch current;
+
+  private final LongAdder ridesPublished = new LongAdder();
+  private final LongAdder messagesPublished = new LongAdder();
+
+  public RideBatcher(RidePublisher publisher, int maxRides, long maxDelayMicros, long acquireTimeoutNanos) {
+    if (maxRides < 1) {
+      throw new IllegalArgumentException("maxRides must be positive");
+    }
+    this.publisher = publisher;
+    this.maxRides = maxRides;
+    this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+    this.acquireTimeoutNanos = acquireTimeoutNanos;
+    this.current = new Batch(maxRides);
+
+    this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "ride-batcher");
+      t.setDaemon(true);
+      return t;
+    });
+    long tickMicros = Math.max(50, maxDelayMicros / 2);
+    timer.scheduleAtFixedRate(this::flushIfDue, tickMicros, tickMicros, TimeUnit.MICROSECONDS);
+    timer.scheduleAtFixedRate(this::logStats, STATS_INTERVAL_SECONDS, STATS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+  }
+
+  public CompletableFuture<Void> add(int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    Batch full = null;
+    CompletableFuture<Void> confirmed;
+    synchronized (this) {
+      Batch batch = current;
+      if (batch.count == 0) {
+        batch.startNanos = System.nanoTime();
+      }
+      LiftRideCodec.encodeInto(batch.frame,
+          LiftRideCodec.BATCH_HEADER_SIZE + batch.count * LiftRideCodec.ENCODED_SIZE,
+          resortID, seasonID, dayID, skierID, liftID, time);
+      batch.count++;
+      confirmed = batch.confirmed;
+      if (batch.count == maxRides) {
+        full = batch;
+        current = new Batch(maxRides);
+      }
+    }
+    if (full != null) {
+      publish(full);
+    }
+    return confirmed;
+  }
+
+  private void flushIfDue() {
+    Batch due = null;
+    synchronized (this) {
+      if (current.count > 0 && System.nanoTime() - current.startNanos >= maxDelayNanos) {
+        due = current;
+        current = new Batch(maxRides);
+      }
+    }
+    if (due != null) {
+      publish(due);
+    }
+  }
+
+  private void publish(Batch batch) {
+    byte[] frame = batch.frame;
+    if (batch.count < maxRides) {
+      byte[] trimmed = new byte[LiftRideCodec.BATCH_HEADER_SIZE + batch.count * LiftRideCodec.ENCODED_SIZE];
+      System.arraycopy(frame, 0, trimmed, 0, trimmed.length);
+      frame = trimmed;
+    }
+    LiftRideCodec.putInt(frame, 0, batch.count);
+
+    CompletableFuture<Void> published = publisher.publish(LiftRideCodec.BATCH_PROPERTIES, frame, acquireTimeoutNanos);
+    if (published == null) {
+      batch.confirmed.completeExceptionally(new RejectedExecutionException("No publisher channel available"));
+      return;
+    }
+    ridesPublished.add(batch.count);
+    messagesPublished.increment();
+    published.whenComplete((ignored, error) -> {
+      if (error == null) {
+        batch.confirmed.complete(null);
+      } else {
+        batch.confirmed.completeExceptionally(error);
+      }
+    });
+  }
+
+  private void logStats() {
+    long rides = ridesPublished.sumThenReset();
+    long messages = messagesPublished.sumThenReset();
+    if (messages > 0) {
+      System.out.printf("RideBatcher: %.0f rides/sec in %.0f broker msgs/sec (%.1f rides/msg)\n",
+          (double) rides / STATS_INTERVAL_SECONDS, (double) messages / STATS_INTERVAL_SECONDS,
+          (double) rides / messages);
+    }
+  }
+
+  public void close() {
+    timer.shutdownNow();
+    Batch remaining;
+    synchronized (this) {
+      remaining = current;
+      current = new Batch(maxRides);
+    }
+    if (remaining.count > 0) {
+      publish(remaining);
+    }
+  }
+
+  private static final class Batch {
+    final byte[] frame;
+    final CompletableFuture<Void> confirmed = new CompletableFuture<>();
+    int count;
+    long startNanos;
+
+    Batch(int maxRides) {
+      frame = new byte[LiftRideCodec.BATCH_HEADER_SIZE + maxRides * LiftRideCodec.ENCODED_SIZE];
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package cs6650.hw1;
+
+import com.rabbitmq.client.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes lift ride messages over a striped pool of confirm-mode channels.
+ *
+ * Each channel lives in its own slot of a lock-free array. A caller starts at the slot picked by
+ * its thread id, so a Tomcat worker normally gets "its" channel back without contention, and
+ * steals a neighbour's only when that one is busy. If no channel frees up within the acquire
+ * timeout, {@link #publish} returns null so the servlet can shed load instead of queueing.
+ *
+ * The returned future completes when the broker confirms the message, or fails if it is nacked
+ * or the channel closes first.
+ */
+public class RidePublisher {
+  private static final long IDLE_PARK_NANOS = 20_000;
+
+  private final String queueName;
+  private final PublisherChannel[] channels;
+  // slot i holds channels[i] while it is idle, null while it is borrowed
+  private final AtomicReferenceArray<PublisherChannel> idle;
+
+  public RidePublisher(Connection connection, String queueName, int channelCount) throws IOException {
+    if (channelCount < 1) {
+      throw new IllegalArgumentException("channelCount must be positive");
+    }
+    this.queueName = queueName;
+    this.channels = new PublisherChannel[channelCount];
+    this.idle = new AtomicReferenceArray<>(channelCount);
+    for (int i = 0; i < channelCount; i++) {
+      Channel ch = connection.createChannel();
+      ch.queueDeclare(queueName, true, false, false, null);
+      ch.confirmSelect();
+      channels[i] = new PublisherChannel(ch);
+      idle.set(i, channels[i]);
+    }
+  }
+
+  public int size() {
+    return channels.length;
+  }
+
+  /**
+   * @return a future completed on broker confirm, or null if every channel stayed busy for
+   *         {@code acquireTimeoutNanos}
+   */
+  public CompletableFuture<Void> publish(AMQP.BasicProperties properties, byte[] body, long acquireTimeoutNanos) {
+    int slot = acquire(acquireTimeoutNanos);
+    if (slot < 0) {
+      return null;
+    }
+    try {
+      return channels[slot].publish(queueName, properties, body);
+    } finally {
+      idle.set(slot, channels[slot]);
+    }
+  }
+
+  private int acquire(long timeoutNanos) {
+    int n = channels.length;
+    int home = (int) (Thread.currentThread().getId() % n);
+    long deadline = 0;
+    while (true) {
+      for (int i = 0; i < n; i++) {
+        int slot = home + i < n ? home + i : home + i - n;
+        if (idle.get(slot) != null && idle.getAndSet(slot, null) != null) {
+          return slot;
+        }
+      }
+      long now = System.nanoTime();
+      if (deadline == 0) {
+        deadline = now + timeoutNanos;
+      } else if (now - deadline >= 0) {
+        return -1;
+      }
+      LockSupport.parkNanos(IDLE_PARK_NANOS);
+    }
+  }
+
+  public void close() {
+    for (PublisherChannel pc : channels) {
+      try {
+        if (pc.channel.isOpen()) {
+          pc.channel.close();
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+    }
+  }
+
+  private static final class PublisherChannel implements ConfirmListener {
+    private final Channel channel;
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> outstanding = new ConcurrentSkipListMap<>();
+
+    PublisherChannel(Channel channel) {
+      this.channel = channel;
+      channel.addConfirmListener(this);
+      channel.addShutdownListener(cause -> {
+        IOException error = new IOException("Channel closed before confirm", cause);
+        for (CompletableFuture<Void> future : outstanding.values()) {
+          future.completeExceptionally(error);
+        }
+        outstanding.clear();
+      });
+    }
+
+    // only called by the thread currently holding this channel's slot
+    CompletableFuture<Void> publish(String queueName, AMQP.BasicProperties properties, byte[] body) {
+      CompletableFuture<Void> confirmed = new CompletableFuture<>();
+      long seqNo = channel.getNextPublishSeqNo();
+      outstanding.put(seqNo, confirmed);
+      try {
+        channel.basicPublish("", queueName, properties, body);
+      } catch (Exception e) {
+        outstanding.remove(seqNo);
+        confirmed.completeExceptionally(e);
+      }
+      return confirmed;
+    }
+
+    @Override
+    public void handleAck(long deliveryTag, boolean multiple) {
+      settle(deliveryTag, multiple, null);
+    }
+
+    @Override
+    public void handleNack(long deliveryTag, boolean multiple) {
+      settle(deliveryTag, multiple, new IOException("Broker nacked publish " + deliveryTag));
+    }
+
+    private void settle(long deliveryTag, boolean multiple, IOException error) {
+      if (multiple) {
+        ConcurrentNavigableMap<Long, CompletableFuture<Void>> confirmed = outstanding.headMap(deliveryTag, true);
+        for (CompletableFuture<Void> future : confirmed.values()) {
+          complete(future, error);
+        }
+        confirmed.clear();
+      } else {
+        CompletableFuture<Void> future = outstanding.remove(deliveryTag);
+        if (future != null) {
+          complete(future, error);
+        }
+      }
+    }
+
+    private static void complete(CompletableFuture<Void> future, IOException error) {
+      if (error == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(error);
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package cs6650.hw1;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.DeliverCallback;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The read side of the upiSkiers API: answers from {@link AggregateTable} lookups, fronted by a
+ * {@link ReadCache} of rendered response bodies.
+ *
+ * One instance is shared by every servlet of a web app (see {@link #forContext}). Cached answers
+ * are dropped when SkierConsumer announces that it updated the aggregates behind them (see
+ * {@link CacheInvalidationPublisher}); the TTL bounds staleness if an announcement is lost.
+ *
+ * Context params: readCacheMaxEntries (10000), readCacheTtlMs (30000). The table and DynamoDB
+ * endpoint come from the same system properties as SkierConsumer.
+ */
+public class RideReader {
+  private static final String CONTEXT_ATTRIBUTE = RideReader.class.getName();
+  private static final int DEFAULT_CACHE_MAX_ENTRIES = 10000;
+  private static final int DEFAULT_CACHE_TTL_MS = 30000;
+
+  private final DynamoDbClient ddb;
+  private final AggregateTable table;
+  private final ReadCache<String, String> cache;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  public RideReader(DynamoDbClient ddb, AggregateTable table, ReadCache<String, String> cache) {
+    this.ddb = ddb;
+    this.table = table;
+    this.cache = cache;
+  }
+
+  public static RideReader forContext(ServletContext context) {
+    synchronized (context) {
+      RideReader reader = (RideReader) context.getAttribute(CONTEXT_ATTRIBUTE);
+      if (reader == null) {
+        ReadCache<String, String> cache = new ReadCache<>(
+            intContextParameter(context, "readCacheMaxEntries", DEFAULT_CACHE_MAX_ENTRIES),
+            intContextParameter(context, "readCacheTtlMs", DEFAULT_CACHE_TTL_MS));
+        reader = new RideReader(SkierConsumer.buildDynamoDbClient(), AggregateTable.fromSystemProperties(), cache);
+        context.setAttribute(CONTEXT_ATTRIBUTE, reader);
+      }
+      return reader;
+    }
+  }
+
+  /** GET /skiers/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}: the day's vertical, or null. */
+  public String dayVertical(int resortID, int seasonID, int dayID, int skierID) {
+    return cache.get(dayKey(resortID, seasonID, dayID, skierID), key -> {
+      Integer vertical = table.dayVertical(ddb, skierID, resortID, seasonID, dayID);
+      return vertical == null ? null : vertical.toString();
+    });
+  }
+
+  /** GET /skiers/{skierID}/vertical?resort=&season=: per-season totals, or null if none. */
+  public String seasonVerticals(int skierID, int resortID, Integer seasonID) {
+    return cache.get(verticalKey(skierID, resortID, seasonID), key -> {
+      SortedMap<Integer, Integer> verticals = table.seasonVerticals(ddb, skierID, resortID, seasonID);
+      if (verticals.isEmpty()) {
+        return null;
+      }
+      StringBuilder json = new StringBuilder("{\"resorts\": [");
+      for (Map.Entry<Integer, Integer> e : verticals.entrySet()) {
+        if (json.charAt(json.length() - 1) != '[') {
+          json.append(", ");
+        }
+        json.append("{\"seasonID\": \"").append(e.getKey())
+            .append("\", \"totalVert\": ").append(e.getValue()).append('}');
+      }
+      return json.append("]}").toString();
+    });
+  }
+
+  /** GET /resorts/{resortID}/seasons/{seasonID}/day/{dayID}/skiers: unique skiers that day. */
+  public String uniqueSkiers(int resortID, int seasonID, int dayID) {
+    return cache.get(resortDayKey(resortID, seasonID, dayID), key ->
+        "{\"time\": \"" + resortID + "\", \"numSkiers\": " + table.uniqueSkiers(ddb, resortID, seasonID, dayID) + "}");
+  }
+
+  /** Drops every cached answer a newly written ride can change. */
+  public void invalidate(LiftRide ride) {
+    cache.invalidate(dayKey(ride.getResortID(), ride.getSeasonID(), ride.getDayID(), ride.getSkierID()));
+    cache.invalidate(verticalKey(ride.getSkierID(), ride.getResortID(), ride.getSeasonID()));
+    cache.invalidate(verticalKey(ride.getSkierID(), ride.getResortID(), null));
+    cache.invalidate(resortDayKey(ride.getResortID(), ride.getSeasonID(), ride.getDayID()));
+  }
+
+  public String cacheStats() {
+    return cache.statsJson();
+  }
+
+  /**
+   * Binds a server-named, exclusive queue to the invalidation exchange so this instance hears
+   * about writes from every SkierConsumer. Only the first call per reader subscribes.
+   */
+  public void subscribeInvalidations(Connection connection) throws IOException {
+    if (!subscribed.compareAndSet(false, true)) {
+      return;
+    }
+    Channel channel = connection.createChannel();
+    channel.exchangeDeclare(CacheInvalidationPublisher.EXCHANGE, "fanout", true);
+    String queue = channel.queueDeclare().getQueue();
+    channel.queueBind(queue, CacheInvalidationPublisher.EXCHANGE, "");
+    DeliverCallback callback = (consumerTag, delivery) -> {
+      try {
+        for (LiftRide ride : LiftRideCodec.decodeAll(delivery.getProperties().getContentType(), delivery.getBody())) {
+          invalidate(ride);
+        }
+      } catch (IllegalArgumentException e) {
+        System.err.println("❌ Bad cache invalidation message: " + e.getMessage());
+      }
+    };
+    channel.basicConsume(queue, true, callback, consumerTag -> {});
+  }
+
+  private static String dayKey(int resortID, int seasonID, int dayID, int skierID) {
+    return "day:" + resortID + ":" + seasonID + ":" + dayID + ":" + skierID;
+  }
+
+  private static String verticalKey(int skierID, int resortID, Integer seasonID) {
+    return "vertical:" + skierID + ":" + resortID + ":" + (seasonID == null ? "*" : seasonID);
+  }
+
+  private static String resortDayKey(int resortID, int seasonID, int dayID) {
+    return "skiers:" + resortID + ":" + seasonID + ":" + dayID;
+  }
+
+  private static int intContextParameter(ServletContext context, String name, int defaultValue) {
+    String value = context.getInitParameter(name);
+    return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+  }
+}
@@ -0,0 +1,31 @@
+package cs6650.hw1;
+
+import java.util.List;
+
+/**
+ * Where a {@link RideWriter} hands the rides it has written to the raw table, e.g. the
+ * {@link RideAggregator}. The writer only acks a delivery once the sink reports that the
+ * generation its rides were accepted into has been applied, so a consumer restart cannot lose
+ * rides that are in the raw table but not yet in the aggregates.
+ */
+public interface RideSink {
+
+  /** Never holds an ack back. */
+  RideSink NONE = new RideSink() {
+    @Override
+    public long ridesWritten(List<LiftRide> rides) {
+      return 0;
+    }
+
+    @Override
+    public long appliedGeneration() {
+      return Long.MAX_VALUE;
+    }
+  };
+
+  /** @return the generation the rides will be applied in */
+  long ridesWritten(List<LiftRide> rides);
+
+  /** Highest generation whose rides have all been applied. */
+  long appliedGeneration();
+}
@@ -0,0 +1,204 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+
+/**
+ * Time-series layout of the lift ride table: one item per ride instead of one per skier/day.
+ *
+ *   partition key SkierDay = skierID#seasonID#dayID, plus #shard when writeShards > 1
+ *   sort key      TimeLift = time (zero-padded to 5 digits)#liftID#resortID
+ *
+ * Rides of a skier/day sort by time inside their partition, so {@link #queryDay} reads a whole
+ * day back with one Query per shard (a single Query when unsharded). The shard is derived from the
+ * ride itself, so a redelivered ride lands on the same item instead of duplicating. Spreading a
+ * hot skier/day over several shards raises its write ceiling at the cost of one extra Query per
+ * shard on read.
+ *
+ * {@link CoalescingRideWriter} stores several rides of a skier/day in one item instead: keyed by
+ * the first of them, with every ride's sort key in the string set Rides. The set is extended with
+ * ADD, so a redelivered ride or a second merge onto the same key unions instead of overwriting.
+ * Both kinds of item can share a partition; {@link #queryDay} expands and de-duplicates them.
+ *
+ * Aggregates for the read API live in {@link AggregateTable}, maintained by the consumer.
+ *
+ * System properties: dynamodb.table (SkierDayRides), dynamodb.writeShards (1).
+ */
+public class RideTable {
+  static final String PARTITION_KEY = "SkierDay";
+  static final String SORT_KEY = "TimeLift";
+
+  private final String tableName;
+  private final int writeShards;
+
+  public RideTable(String tableName, int writeShards) {
+    if (writeShards < 1) {
+      throw new IllegalArgumentException("writeShards must be positive");
+    }
+    this.tableName = tableName;
+    this.writeShards = writeShards;
+  }
+
+  public static RideTable fromSystemProperties() {
+    return new RideTable(
+        System.getProperty("dynamodb.table", "SkierDayRides"),
+        Integer.getInteger("dynamodb.writeShards", 1));
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public int getWriteShards() {
+    return writeShards;
+  }
+
+  public String partitionKey(LiftRide ride) {
+    String skierDay = skierDay(ride.getSkierID(), ride.getSeasonID(), ride.getDayID());
+    if (writeShards == 1) {
+      return skierDay;
+    }
+    int shard = Math.floorMod(ride.getTime() * 31 + ride.getLiftID(), writeShards);
+    return skierDay + "#" + shard;
+  }
+
+  /**
+   * The resort is part of the key: a skier riding two resorts on one day must not have a ride at
+   * one collapse onto a ride at the same time and lift number at the other. Built by hand, since
+   * this runs once per ride on the write path.
+   */
+  public static String sortKey(LiftRide ride) {
+    StringBuilder key = new StringBuilder(20);
+    int time = ride.getTime();
+    for (int pad = 10000; pad > 1 && time >= 0 && time < pad; pad /= 10) {
+      key.append('0');
+    }
+    return key.append(time).append('#').append(ride.getLiftID()).append('#').append(ride.getResortID()).toString();
+  }
+
+  /**
+   * Primary key of the item a ride is stored under. BatchWriteItem rejects two requests for the
+   * same key, so batches are de-duplicated on it; only a true duplicate ride shares a key.
+   */
+  public String itemKey(LiftRide ride) {
+    return partitionKey(ride) + "|" + sortKey(ride);
+  }
+
+  public Map<String, AttributeValue> toItem(LiftRide ride) {
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put(PARTITION_KEY, AttributeValue.fromS(partitionKey(ride)));
+    item.put(SORT_KEY, AttributeValue.fromS(sortKey(ride)));
+    item.put("SkierID", AttributeValue.fromN(String.valueOf(ride.getSkierID())));
+    item.put("SeasonID", AttributeValue.fromN(String.valueOf(ride.getSeasonID())));
+    item.put("DayID", AttributeValue.fromN(String.valueOf(ride.getDayID())));
+    item.put("ResortID", AttributeValue.fromN(String.valueOf(ride.getResortID())));
+    item.put("LiftID", AttributeValue.fromN(String.valueOf(ride.getLiftID())));
+    item.put("Time", AttributeValue.fromN(String.valueOf(ride.getTime())));
+    return item;
+  }
+
+  /**
+   * One UpdateItem storing several rides of the same skier/day and resort (and shard), keyed by
+   * the first ride. Costs one request instead of one per ride, and asks for the write capacity it
+   * consumed, which grows with the size of the Rides set.
+   */
+  public UpdateItemRequest toMergedUpdate(List<LiftRide> rides) {
+    LiftRide first = rides.get(0);
+    List<String> sortKeys = new ArrayList<>(rides.size());
+    for (LiftRide ride : rides) {
+      sortKeys.add(sortKey(ride));
+    }
+    Map<String, AttributeValue> key = new HashMap<>();
+    key.put(PARTITION_KEY, AttributeValue.fromS(partitionKey(first)));
+    key.put(SORT_KEY, AttributeValue.fromS(sortKey(first)));
+    Map<String, AttributeValue> values = new HashMap<>();
+    values.put(":skier", AttributeValue.fromN(String.valueOf(first.getSkierID())));
+    values.put(":season", AttributeValue.fromN(String.valueOf(first.getSeasonID())));
+    values.put(":day", AttributeValue.fromN(String.valueOf(first.getDayID())));
+    values.put(":resort", AttributeValue.fromN(String.valueOf(first.getResortID())));
+    values.put(":lift", AttributeValue.fromN(String.valueOf(first.getLiftID())));
+    values.put(":time", AttributeValue.fromN(String.valueOf(first.getTime())));
+    values.put(":rides", AttributeValue.fromSs(sortKeys));
+    return UpdateItemRequest.builder()
+        .tableName(tableName)
+        .key(key)
+        .updateExpression("SET SkierID = :skier, SeasonID = :season, DayID = :day, ResortID = :resort,"
+            + " LiftID = :lift, #time = :time ADD Rides :rides")
+        .expressionAttributeNames(Collections.singletonMap("#time", "Time"))
+        .expressionAttributeValues(values)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+        .build();
+  }
+
+  public static LiftRide fromItem(Map<String, AttributeValue> item) {
+    return new LiftRide(
+        Integer.parseInt(item.get("ResortID").n()),
+        Integer.parseInt(item.get("SeasonID").n()),
+        Integer.parseInt(item.get("DayID").n()),
+        Integer.parseInt(item.get("SkierID").n()),
+        Integer.parseInt(item.get("LiftID").n()),
+        Integer.parseInt(item.get("Time").n()));
+  }
+
+  /**
+   * Every ride of one skier on one day, in time order. Pages of each shard's Query are followed
+   * until exhausted; shards and merged items are expanded and de-duplicated by sort key.
+   */
+  public List<LiftRide> queryDay(DynamoDbClient ddb, int skierID, int seasonID, int dayID) {
+    String skierDay = skierDay(skierID, seasonID, dayID);
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    for (int shard = 0; shard < writeShards; shard++) {
+      String key = writeShards == 1 ? skierDay : skierDay + "#" + shard;
+      QueryRequest request = QueryRequest.builder()
+          .tableName(tableName)
+          .keyConditionExpression("#pk = :pk")
+          .expressionAttributeNames(Collections.singletonMap("#pk", PARTITION_KEY))
+          .expressionAttributeValues(Collections.singletonMap(":pk", AttributeValue.fromS(key)))
+          .build();
+      ddb.queryPaginator(request).items().forEach(items::add);
+    }
+    SortedMap<String, LiftRide> rides = new TreeMap<>();
+    for (Map<String, AttributeValue> item : items) {
+      LiftRide ride = fromItem(item);
+      rides.put(item.get(SORT_KEY).s(), ride);
+      AttributeValue merged = item.get("Rides");
+      if (merged != null) {
+        for (String sortKey : merged.ss()) {
+          int hash = sortKey.indexOf('#');
+          // keys written before the resort was added end at the lift
+          int resortHash = sortKey.indexOf('#', hash + 1);
+          int liftEnd = resortHash < 0 ? sortKey.length() : resortHash;
+          int resortID = resortHash < 0 ? ride.getResortID() : Integer.parseInt(sortKey.substring(resortHash + 1));
+          rides.put(sortKey, new LiftRide(resortID, seasonID, dayID, skierID,
+              Integer.parseInt(sortKey.substring(hash + 1, liftEnd)), Integer.parseInt(sortKey.substring(0, hash))));
+        }
+      }
+    }
+    return new ArrayList<>(rides.values());
+  }
+
+  /** Creates the table (on-demand capacity) and waits for it, unless it already exists. */
+  public void createIfMissing(DynamoDbClient ddb) {
+    try {
+      ddb.createTable(CreateTableRequest.builder()
+          .tableName(tableName)
+          .attributeDefinitions(
+              AttributeDefinition.builder().attributeName(PARTITION_KEY).attributeType(ScalarAttributeType.S).build(),
+              AttributeDefinition.builder().attributeName(SORT_KEY).attributeType(ScalarAttributeType.S).build())
+          .keySchema(
+              KeySchemaElement.builder().attributeName(PARTITION_KEY).keyType(KeyType.HASH).build(),
+              KeySchemaElement.builder().attributeName(SORT_KEY).keyType(KeyType.RANGE).build())
+          .billingMode(BillingMode.PAY_PER_REQUEST)
+          .build());
+    } catch (ResourceInUseException e) {
+      // already there
+    }
+    ddb.waiter().waitUntilTableExists(DescribeTableRequest.builder().tableName(tableName).build());
+  }
+
+  private static String skierDay(int skierID, int seasonID, int dayID) {
+    return skierID + "#" + seasonID + "#" + dayID;
+  }
+}
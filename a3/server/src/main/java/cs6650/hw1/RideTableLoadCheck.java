@@ -0,0 +1,179 @@
+package cs6650.hw1;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes many rides for a few hot skiers on one day through {@link BatchRideWriter}, or with
+ * -Dcheck.writer=coalesce through {@link CoalescingRideWriter} (one writer per thread, as
+ * SkierConsumer has one per channel), then reads every skier's day back with
+ * {@link RideTable#queryDay} and checks that no ride was lost or overwritten. The written rides
+ * also go through a {@link RideAggregator}, whose day verticals and unique skier counts are
+ * checked against the generated rides; a writer's last ack only arrives once they are applied.
+ *
+ * Meant for DynamoDB Local:
+ *   java -Ddynamodb.endpoint=http://localhost:8000 -Daws.accessKeyId=x -Daws.secretAccessKey=x
+ *     -Dcheck.skiers=20 -Dcheck.ridesPerSkier=300 -Dcheck.threads=8 cs6650.hw1.RideTableLoadCheck
+ * The tables (dynamodb.table, dynamodb.writeShards, dynamodb.aggregateTable) are created if missing;
+ * use fresh ones per run, since aggregates keep adding up.
+ */
+public class RideTableLoadCheck {
+
+  public static void main(String[] args) throws Exception {
+    int skiers = Integer.getInteger("check.skiers", 20);
+    int ridesPerSkier = Integer.getInteger("check.ridesPerSkier", 300);
+    int threads = Integer.getInteger("check.threads", 8);
+    int seasonID = 2025;
+    int dayID = Integer.getInteger("check.dayID", 1);
+    boolean coalesce = "coalesce".equalsIgnoreCase(System.getProperty("check.writer", "batch"));
+
+    DynamoDbClient ddb = SkierConsumer.buildDynamoDbClient();
+    RideTable table = RideTable.fromSystemProperties();
+    table.createIfMissing(ddb);
+    AggregateTable aggregates = AggregateTable.fromSystemProperties();
+    aggregates.createIfMissing(ddb);
+    RideAggregator aggregator = new RideAggregator(ddb, aggregates, 16, 100000, applied -> {});
+    ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+    flusher.scheduleWithFixedDelay(aggregator::flush, 200, 200, TimeUnit.MILLISECONDS);
+
+    // distinct (time, liftID) per skier so every ride is its own sort key; the old SkierID+DaySeason
+    // layout would have kept one item per skier
+    Random random = new Random(42);
+    List<LiftRide> rides = new ArrayList<>(skiers * ridesPerSkier);
+    for (int skier = 1; skier <= skiers; skier++) {
+      List<Integer> slots = new ArrayList<>(360 * 40);
+      for (int i = 0; i < 360 * 40; i++) {
+        slots.add(i);
+      }
+      Collections.shuffle(slots, random);
+      for (int i = 0; i < ridesPerSkier; i++) {
+        int slot = slots.get(i);
+        rides.add(new LiftRide(1 + skier % 10, seasonID, dayID, skier, 1 + slot % 40, 1 + slot / 40));
+      }
+    }
+    Collections.shuffle(rides, random);
+
+    ExecutorService updaters = Executors.newFixedThreadPool(16);
+    CoalescingRideWriter.Counters coalescing = new CoalescingRideWriter.Counters();
+    AtomicLong acked = new AtomicLong();
+    AtomicLong nacked = new AtomicLong();
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      List<LiftRide> share = rides.subList(t * rides.size() / threads, (t + 1) * rides.size() / threads);
+      futures.add(pool.submit(() -> {
+        long[] settled = {0};
+        Acknowledger acknowledger = new Acknowledger() {
+          @Override
+          public void ack(long deliveryTag, boolean multiple) {
+            acked.addAndGet(deliveryTag - settled[0]);
+            settled[0] = deliveryTag;
+          }
+
+          @Override
+          public void nack(long deliveryTag, boolean multiple, boolean requeue) {
+            nacked.addAndGet(deliveryTag - settled[0]);
+            settled[0] = deliveryTag;
+          }
+        };
+        RideWriter writer;
+        Runnable flush;
+        if (coalesce) {
+          CoalescingRideWriter coalescingWriter = new CoalescingRideWriter(ddb, table, acknowledger, updaters,
+              500, 1000, coalescing, aggregator);
+          writer = coalescingWriter;
+          flush = coalescingWriter::flush;
+        } else {
+          BatchRideWriter batchWriter = new BatchRideWriter(ddb, table, acknowledger,
+              BatchRideWriter.MAX_BATCH_SIZE, 50, aggregator);
+          writer = batchWriter;
+          flush = batchWriter::flush;
+        }
+        for (int i = 0; i < share.size(); i++) {
+          writer.write(Collections.singletonList(share.get(i)), i + 1);
+        }
+        flush.run();
+        // acks wait for the aggregator to apply the rides
+        while (settled[0] < share.size()) {
+          Thread.sleep(50);
+          writer.flushIfLingering();
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    long writeNanos = System.nanoTime() - start;
+    pool.shutdown();
+    updaters.shutdown();
+    flusher.shutdown();
+    flusher.awaitTermination(1, TimeUnit.MINUTES);
+
+    start = System.nanoTime();
+    long found = 0;
+    long missing = 0;
+    long outOfOrder = 0;
+    for (int skier = 1; skier <= skiers; skier++) {
+      List<LiftRide> day = table.queryDay(ddb, skier, seasonID, dayID);
+      Set<String> stored = new HashSet<>();
+      for (int i = 0; i < day.size(); i++) {
+        stored.add(RideTable.sortKey(day.get(i)));
+        if (i > 0 && day.get(i).getTime() < day.get(i - 1).getTime()) {
+          outOfOrder++;
+        }
+      }
+      found += day.size();
+      for (LiftRide ride : rides) {
+        if (ride.getSkierID() == skier && !stored.contains(RideTable.sortKey(ride))) {
+          missing++;
+        }
+      }
+    }
+    long readNanos = System.nanoTime() - start;
+
+    Map<String, Integer> expectedVertical = new HashMap<>();
+    Map<Integer, Set<Integer>> expectedSkiers = new HashMap<>();
+    for (LiftRide ride : rides) {
+      expectedVertical.merge(ride.getSkierID() + "#" + ride.getResortID(), ride.getVertical(), Integer::sum);
+      expectedSkiers.computeIfAbsent(ride.getResortID(), r -> new HashSet<>()).add(ride.getSkierID());
+    }
+    long wrongAggregates = 0;
+    start = System.nanoTime();
+    for (int skier = 1; skier <= skiers; skier++) {
+      int resort = 1 + skier % 10;
+      Integer vertical = aggregates.dayVertical(ddb, skier, resort, seasonID, dayID);
+      if (!expectedVertical.get(skier + "#" + resort).equals(vertical)) {
+        wrongAggregates++;
+      }
+    }
+    for (Map.Entry<Integer, Set<Integer>> e : expectedSkiers.entrySet()) {
+      if (aggregates.uniqueSkiers(ddb, e.getKey(), seasonID, dayID) != e.getValue().size()) {
+        wrongAggregates++;
+      }
+    }
+    long aggregateReadNanos = System.nanoTime() - start;
+
+    System.out.println("==============================");
+    System.out.printf("Table: %s (%d write shard(s))\n", table.getTableName(), table.getWriteShards());
+    System.out.printf("Wrote %,d rides for %d skier/days with %d threads in %.2f s => %,.0f rides/sec (%,d acked, %,d nacked)\n",
+        rides.size(), skiers, threads, writeNanos / 1e9, rides.size() / (writeNanos / 1e9), acked.get(), nacked.get());
+    if (coalesce) {
+      System.out.println("Raw writes: " + coalescing.report());
+    }
+    System.out.printf("Read back %,d rides with %d day queries, %.1f ms per skier/day\n",
+        found, skiers, readNanos / 1e6 / skiers);
+    System.out.printf("Aggregates: %s, %d lookups in %.1f ms each\n", aggregator.coalescingReport(),
+        skiers + expectedSkiers.size(), aggregateReadNanos / 1e6 / (skiers + expectedSkiers.size()));
+    if (missing == 0 && outOfOrder == 0 && nacked.get() == 0 && wrongAggregates == 0) {
+      System.out.println("🏆 No lost rides (SkierID+DaySeason would have kept " + skiers + " of " + rides.size() + ")");
+    } else {
+      System.out.println("❌ " + missing + " rides missing, " + outOfOrder + " out of order, "
+          + wrongAggregates + " wrong aggregates");
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package cs6650.hw1;
+
+import java.util.List;
+
+/**
+ * Persists lift rides for one RabbitMQ channel and settles each delivery once all of its rides
+ * (one, or many for a batch frame) are written.
+ */
+public interface RideWriter {
+
+  void write(List<LiftRide> rides, long deliveryTag);
+
+  /** Called periodically by the consumer so buffering writers can flush stale batches. */
+  default void flushIfLingering() {}
+}
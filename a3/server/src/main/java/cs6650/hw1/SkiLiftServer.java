@@ -1,7 +1,133 @@
 package cs6650.hw1;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.http2.Http2Protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Boots an embedded Tomcat (NIO connector) hosting SkierServlet and ResortServlet, so the server
+ * runs without an external Tomcat install or WAR deployment.
+ *
+ * Connector tuning (system properties, defaults in parentheses):
+ *   server.port (8080), server.contextPath (/SkiLiftServer-1.0-SNAPSHOT, what the client expects)
+ *   server.acceptorThreads (1), server.maxThreads (200), server.minSpareThreads (25)
+ *   server.acceptCount (100), server.maxConnections (10000)
+ *   server.keepAliveTimeoutMs (60000), server.maxKeepAliveRequests (-1 = unlimited)
+ *   server.http2 (false): also accept HTTP/2, as h2c upgrade or prior knowledge
+ *   server.loadOnStartup (false): connect SkierServlet to RabbitMQ at boot instead of on the
+ *   first request, as with the WAR's web.xml
+ *
+ * Run it with {@code mvn compile exec:java@server}, or from the jar-with-dependencies with
+ * {@code java -cp <jar> cs6650.hw1.SkiLiftServer} (the jar's Main-Class is SkierConsumer).
+ *
+ * SkierServlet init-params (see web.xml) are read from -Dservlet.<name>, e.g.
+ * -Dservlet.batchMaxRides=32, and context-params from -Dcontext.<name>, e.g.
+ * -Dcontext.readCacheTtlMs=5000; unset ones keep the defaults.
+ */
 public class SkiLiftServer {
-  public static void main(String[] args) {
-    System.out.println("SkiLiftServer is running...");
+  private static final String[] SERVLET_INIT_PARAMS = {
+      "rabbitHost", "wireFormat", "channelPoolSize", "acquireTimeoutMs", "confirmTimeoutMs", "batchMaxRides",
+      "batchMaxDelayMicros", "batchMaxItems", "asyncIngestion", "asyncPublisherThreads", "asyncQueueCapacity"
+  };
+  private static final String[] CONTEXT_PARAMS = {"readCacheMaxEntries", "readCacheTtlMs", "rabbitHost"};
+
+  private final Tomcat tomcat = new Tomcat();
+  // Tomcat's work directory; removed again by stop()
+  private final File baseDir;
+
+  public SkiLiftServer(int port, String contextPath) throws IOException {
+    baseDir = Files.createTempDirectory("skilift-tomcat").toFile();
+    tomcat.setBaseDir(baseDir.getAbsolutePath());
+
+    Connector connector = new Connector("org.apache.coyote.http11.Http11NioProtocol");
+    connector.setPort(port);
+    connector.setProperty("acceptorThreadCount", System.getProperty("server.acceptorThreads", "1"));
+    connector.setProperty("maxThreads", System.getProperty("server.maxThreads", "200"));
+    connector.setProperty("minSpareThreads", System.getProperty("server.minSpareThreads", "25"));
+    connector.setProperty("acceptCount", System.getProperty("server.acceptCount", "100"));
+    connector.setProperty("maxConnections", System.getProperty("server.maxConnections", "10000"));
+    connector.setProperty("keepAliveTimeout", System.getProperty("server.keepAliveTimeoutMs", "60000"));
+    connector.setProperty("maxKeepAliveRequests", System.getProperty("server.maxKeepAliveRequests", "-1"));
+    connector.setProperty("tcpNoDelay", "true");
+    if (Boolean.getBoolean("server.http2")) {
+      connector.addUpgradeProtocol(new Http2Protocol());
+    }
+    tomcat.getService().addConnector(connector);
+    tomcat.setConnector(connector);
+
+    Context context = tomcat.addContext(contextPath, baseDir.getAbsolutePath());
+    for (String name : CONTEXT_PARAMS) {
+      String value = System.getProperty("context." + name);
+      if (value != null) {
+        context.addParameter(name, value);
+      }
+    }
+    // an instance, not a class name: under exec:java the context loader cannot see our classes
+    context.addServletContainerInitializer(
+        (classes, servletContext) -> servletContext.addListener(new InvalidationSubscriber()), null);
+    Wrapper skiers = Tomcat.addServlet(context, "SkierServlet", new SkierServlet());
+    skiers.setAsyncSupported(true);
+    if (Boolean.getBoolean("server.loadOnStartup")) {
+      skiers.setLoadOnStartup(1);
+    }
+    for (String name : SERVLET_INIT_PARAMS) {
+      String value = System.getProperty("servlet." + name);
+      if (value != null) {
+        skiers.addInitParameter(name, value);
+      }
+    }
+    context.addServletMappingDecoded("/skiers/*", "SkierServlet");
+    Tomcat.addServlet(context, "ResortServlet", new ResortServlet());
+    context.addServletMappingDecoded("/resorts/*", "ResortServlet");
+  }
+
+  public void start() throws LifecycleException {
+    tomcat.start();
+  }
+
+  public void stop() throws LifecycleException {
+    tomcat.stop();
+    tomcat.destroy();
+    try (Stream<Path> files = Files.walk(baseDir.toPath())) {
+      // children before their directories
+      files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+    } catch (IOException e) {
+      System.err.println("❌ Could not remove " + baseDir + ": " + e.getMessage());
+    }
+  }
+
+  /** The bound port, useful when started on port 0. */
+  public int getPort() {
+    return tomcat.getConnector().getLocalPort();
+  }
+
+  public static void main(String[] args) throws Exception {
+    long start = System.nanoTime();
+    int port = Integer.getInteger("server.port", 8080);
+    String contextPath = System.getProperty("server.contextPath", "/SkiLiftServer-1.0-SNAPSHOT");
+
+    SkiLiftServer server = new SkiLiftServer(port, contextPath);
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        server.stop();
+      } catch (LifecycleException e) {
+        e.printStackTrace();
+      }
+    }));
+
+    System.out.printf("SkiLiftServer is running on port %d%s (started in %d ms)\n",
+        server.getPort(), contextPath, (System.nanoTime() - start) / 1_000_000);
+    server.tomcat.getServer().await();
   }
 }
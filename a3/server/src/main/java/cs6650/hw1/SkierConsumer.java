@@ -1,22 +1,45 @@
 package cs6650.hw1;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.rabbitmq.client.*;
 import software.amazon.awssdk.services.dynamodb.*;
-import software.amazon.awssdk.services.dynamodb.model.*;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 
-import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URI;
+import java.util.List;
 import java.util.concurrent.*;
 
 public class SkierConsumer {
   private static final String QUEUE_NAME = "ski_lift_rides";
   private static final int THREAD_COUNT = 8;
 
+  // Batching: -Dconsumer.batchSize (1..25) and -Dconsumer.lingerMs
+  private static final int BATCH_SIZE = Integer.getInteger("consumer.batchSize", BatchRideWriter.MAX_BATCH_SIZE);
+  private static final long LINGER_MS = Long.getLong("consumer.lingerMs", 50L);
+
+  // -Dconsumer.writer=coalesce (one UpdateItem per skier/day per window), batch (BatchWriteItem)
+  // or async (pipelined putItem via DynamoDbAsyncClient)
+  private static final String WRITER = System.getProperty("consumer.writer", "coalesce");
+  // Coalescing: rides buffered per channel before a flush, flush window, concurrent UpdateItems
+  // shared by all channels, and how often the coalescing ratio is printed
+  private static final int COALESCE_MAX_RIDES = Integer.getInteger("consumer.coalesceMaxRides", 500);
+  private static final long COALESCE_WINDOW_MS = Long.getLong("consumer.coalesceWindowMs", 1000L);
+  private static final int COALESCE_THREADS = Integer.getInteger("consumer.coalesceThreads", 16);
+  private static final long COALESCE_REPORT_MS = Long.getLong("consumer.coalesceReportMs", 10000L);
+  // Async pipelining: outstanding putItem calls per consumer channel
+  private static final int MAX_IN_FLIGHT = Integer.getInteger("consumer.maxInFlight", 64);
+  // Read cache invalidations: written skier/days are announced to the servers every this many ms
+  private static final long INVALIDATION_INTERVAL_MS = Long.getLong("consumer.invalidationIntervalMs", 100L);
+  // Materialized aggregates: coalesced per skier/day and flushed every aggregateFlushMs by
+  // aggregateThreads concurrent UpdateItem transactions
+  private static final long AGGREGATE_FLUSH_MS = Long.getLong("consumer.aggregateFlushMs", 1000L);
+  private static final int AGGREGATE_THREADS = Integer.getInteger("consumer.aggregateThreads", 16);
+  private static final int MAX_SEEN_SKIERS = Integer.getInteger("consumer.maxSeenSkiers", 200000);
+  // Unacked deliveries per channel. Acks wait for the aggregate flush, so this must cover about
+  // aggregateFlushMs (plus the flush itself) worth of a channel's rides
+  private static final int PREFETCH = Integer.getInteger("consumer.prefetch", 5000);
+
   public static void main(String[] args) throws Exception {
     // === Initialize RabbitMQ ===
     ConnectionFactory factory = new ConnectionFactory();
@@ -29,53 +52,88 @@ public class SkierConsumer {
     ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
 
     // === Initialize DynamoDB ===
-    DynamoDbClient ddb = DynamoDbClient.builder()
-        .region(Region.US_WEST_2)  // ✅ 修改为你的 Region（例如 us-west-2）
-        .credentialsProvider(DefaultCredentialsProvider.create())
-        .build();
+    RideTable table = RideTable.fromSystemProperties();
+    boolean async = "async".equalsIgnoreCase(WRITER);
+    DynamoDbClient ddb = async ? null : buildDynamoDbClient();
+    DynamoDbAsyncClient asyncDdb = async ? buildDynamoDbAsyncClient(THREAD_COUNT * MAX_IN_FLIGHT) : null;
+
+    ScheduledExecutorService lingerScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "batch-linger");
+      t.setDaemon(true);
+      return t;
+    });
+    // one thread per channel: a writer's flush blocks on DynamoDB while holding that writer, and
+    // must not hold back the other channels or the invalidations above
+    ScheduledExecutorService flushScheduler = Executors.newScheduledThreadPool(THREAD_COUNT, r -> {
+      Thread t = new Thread(r, "writer-flush");
+      t.setDaemon(true);
+      return t;
+    });
+
+    boolean coalesce = "coalesce".equalsIgnoreCase(WRITER);
+    long flushCheckMs = coalesce ? COALESCE_WINDOW_MS : LINGER_MS;
+    ExecutorService updaters = coalesce ? Executors.newFixedThreadPool(COALESCE_THREADS, r -> {
+      Thread t = new Thread(r, "coalesce-writer");
+      t.setDaemon(true);
+      return t;
+    }) : null;
+    CoalescingRideWriter.Counters coalescing = new CoalescingRideWriter.Counters();
+    if (coalesce) {
+      lingerScheduler.scheduleWithFixedDelay(() -> System.out.println("Coalescing: " + coalescing.report()),
+          COALESCE_REPORT_MS, COALESCE_REPORT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    CacheInvalidationPublisher invalidations = new CacheInvalidationPublisher(rabbitConnection);
+    lingerScheduler.scheduleWithFixedDelay(invalidations::flush,
+        INVALIDATION_INTERVAL_MS, INVALIDATION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+    // aggregates have their own scheduler: a flush waits on many UpdateItems
+    RideAggregator aggregator = new RideAggregator(ddb != null ? ddb : buildDynamoDbClient(),
+        AggregateTable.fromSystemProperties(), AGGREGATE_THREADS, MAX_SEEN_SKIERS, invalidations::ridesWritten);
+    Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "aggregate-flush");
+      t.setDaemon(true);
+      return t;
+    }).scheduleWithFixedDelay(logFailures("Aggregate flush", aggregator::flush),
+        AGGREGATE_FLUSH_MS, AGGREGATE_FLUSH_MS, TimeUnit.MILLISECONDS);
 
     for (int i = 0; i < THREAD_COUNT; i++) {
       executor.submit(() -> {
         try {
           Channel channel = rabbitConnection.createChannel();
           channel.queueDeclare(QUEUE_NAME, true, false, false, null);
-          channel.basicQos(50);
+          // a full batch / in-flight window / coalescing buffer must fit inside the prefetch window
+          channel.basicQos(Math.max(PREFETCH, coalesce ? COALESCE_MAX_RIDES : async ? MAX_IN_FLIGHT : 2 * BATCH_SIZE));
+
+          Acknowledger acknowledger = Acknowledger.forChannel(channel);
+          RideWriter writer;
+          if (coalesce) {
+            writer = new CoalescingRideWriter(ddb, table, acknowledger, updaters, COALESCE_MAX_RIDES,
+                COALESCE_WINDOW_MS, coalescing, aggregator);
+          } else if (async) {
+            writer = new AsyncRideWriter(asyncDdb, table, acknowledger, MAX_IN_FLIGHT, aggregator);
+          } else {
+            writer = new BatchRideWriter(ddb, table, acknowledger, BATCH_SIZE, LINGER_MS, aggregator);
+          }
+          flushScheduler.scheduleWithFixedDelay(logFailures("Writer flush", writer::flushIfLingering),
+              flushCheckMs, Math.max(1, flushCheckMs / 2), TimeUnit.MILLISECONDS);
 
           DeliverCallback deliverCallback = (consumerTag, delivery) -> {
+            long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+            List<LiftRide> rides;
             try {
-              String message = new String(delivery.getBody(), StandardCharsets.UTF_8);
-              JsonObject json = JsonParser.parseString(message).getAsJsonObject();
-
-              // === Extract data safely ===
-              int skierID = json.get("skierID").getAsInt();
-              int resortID = json.get("resortID").getAsInt();
-              int seasonID = json.get("seasonID").getAsInt();
-              int dayID = json.get("dayID").getAsInt();
-              int liftID = json.get("liftID").getAsInt();
-              int time = json.get("time").getAsInt();
-              String daySeason = dayID + "#" + seasonID;
-
-              // === Prepare item for DynamoDB ===
-              Map<String, AttributeValue> item = new HashMap<>();
-              item.put("SkierID", AttributeValue.fromN(String.valueOf(skierID)));
-              item.put("DaySeason", AttributeValue.fromS(daySeason));
-              item.put("LiftID", AttributeValue.fromN(String.valueOf(liftID)));
-              item.put("ResortID", AttributeValue.fromN(String.valueOf(resortID)));
-              item.put("Time", AttributeValue.fromN(String.valueOf(time)));
-
-              PutItemRequest request = PutItemRequest.builder()
-                  .tableName("LiftRides")
-                  .item(item)
-                  .build();
-
-              ddb.putItem(request);
-
-              System.out.println(Thread.currentThread().getName() + " Wrote to DynamoDB: " + message);
-              channel.basicAck(delivery.getEnvelope().getDeliveryTag(), false);
+              rides = LiftRideCodec.decodeAll(delivery.getProperties().getContentType(), delivery.getBody());
             } catch (Exception e) {
+              // reject right away, otherwise the next multiple=true ack would silently cover it
               System.err.println("❌ Failed to process message: " + e.getMessage());
-              e.printStackTrace();
+              channel.basicReject(deliveryTag, false);
+              return;
+            }
+            if (rides.isEmpty()) {
+              channel.basicAck(deliveryTag, false);
+              return;
             }
+            writer.write(rides, deliveryTag);
           };
 
           channel.basicConsume(QUEUE_NAME, false, deliverCallback, consumerTag -> {});
@@ -90,4 +148,49 @@ public class SkierConsumer {
       Thread.sleep(60000);
     }
   }
+
+  /**
+   * A periodic task that throws is silently cancelled by its scheduler, and a dead flush stops
+   * every ack, so failures are logged and the next run tries again.
+   */
+  static Runnable logFailures(String name, Runnable task) {
+    return () -> {
+      try {
+        task.run();
+      } catch (Throwable t) {
+        System.err.println("❌ " + name + " failed: " + t);
+      }
+    };
+  }
+
+  /**
+   * -Ddynamodb.endpoint points the consumer at DynamoDB Local (e.g. http://localhost:8000).
+   */
+  static DynamoDbClient buildDynamoDbClient() {
+    DynamoDbClientBuilder builder = DynamoDbClient.builder()
+        .region(Region.US_WEST_2)  // ✅ 修改为你的 Region（例如 us-west-2）
+        .credentialsProvider(DefaultCredentialsProvider.create());
+    String endpoint = System.getProperty("dynamodb.endpoint");
+    if (endpoint != null && !endpoint.isEmpty()) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder.build();
+  }
+
+  /**
+   * The Netty client defaults to 50 connections, which would silently cap the in-flight window.
+   */
+  static DynamoDbAsyncClient buildDynamoDbAsyncClient(int maxConcurrency) {
+    DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+        .region(Region.US_WEST_2)
+        .credentialsProvider(DefaultCredentialsProvider.create())
+        .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+            .maxConcurrency(maxConcurrency)
+            .maxPendingConnectionAcquires(maxConcurrency * 2));
+    String endpoint = System.getProperty("dynamodb.endpoint");
+    if (endpoint != null && !endpoint.isEmpty()) {
+      builder.endpointOverride(URI.create(endpoint));
+    }
+    return builder.build();
+  }
 }
@@ -1,54 +1,192 @@
 package cs6650.hw1;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import com.rabbitmq.client.*;
 
-@WebServlet(name = "SkierServlet", urlPatterns = {"/skiers/*"})
+@WebServlet(name = "SkierServlet", urlPatterns = {"/skiers/*"}, asyncSupported = true)
 public class SkierServlet extends HttpServlet {
 
   private static final String QUEUE_NAME = "ski_lift_rides";
+  static final String DEFAULT_RABBIT_HOST = "44.232.3.127";
 
   private Connection connection;
-  private static final int POOL_SIZE = 10;
-  private BlockingQueue<Channel> channelPool;
+  private RidePublisher publisher;
+
+  // Publisher tuning (init-params): one confirm channel per Tomcat worker by default, a short
+  // bounded wait for a channel before answering 503, and how long a 201 may wait for the confirm
+  private static final int DEFAULT_CHANNEL_POOL_SIZE = 200;
+  private static final int DEFAULT_ACQUIRE_TIMEOUT_MS = 100;
+  private static final int DEFAULT_CONFIRM_TIMEOUT_MS = 5000;
+  private long acquireTimeoutNanos;
+  private long confirmTimeoutMs;
+
+  // Micro-batching (init-params): batchMaxRides > 1 packs rides into one broker message,
+  // flushed when full or after batchMaxDelayMicros
+  private static final int DEFAULT_BATCH_MAX_DELAY_MICROS = 1000;
+  private RideBatcher batcher;
+
+  // Async ingestion (init-params): asyncIngestion=true hands publishing to this stage and frees
+  // the container thread; the bounded queue sheds load with 503 when the stage falls behind
+  private static final int DEFAULT_ASYNC_PUBLISHER_THREADS = 16;
+  private static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 10000;
+  private ThreadPoolExecutor publisherStage;
+
+  private static final String BUSY_MESSAGE = "Server busy, please retry.";
+  private static final String CONFIRM_TIMEOUT_MESSAGE = "Broker did not confirm in time, please retry.";
+
+  // pathInfo below /skiers/*
+  private static final PathTemplate LIFT_RIDE_PATH =
+      PathTemplate.compile("/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}");
+  private static final PathTemplate VERTICAL_PATH = PathTemplate.compile("/{skierID}/vertical");
+  // path parameters of the current request; per thread, like the body parsers, so routing does not allocate
+  private static final ThreadLocal<int[]> PATH_PARAMS = ThreadLocal.withInitial(
+      () -> new int[Math.max(LIFT_RIDE_PATH.paramCount(), VERTICAL_PATH.paramCount())]);
+  // GET /skiers/cache: read cache counters
+  private static final String CACHE_STATS_PATH = "/cache";
+  private static final String NOT_FOUND_MESSAGE = "Data not found.";
+
+  // GETs are answered from DynamoDB through the web app's shared, cached reader
+  private RideReader reader;
+
+  // Request body fields, parsed straight off the input stream by a per-thread parser
+  private static final int BODY_SKIER_ID = 0;
+  private static final int BODY_LIFT_ID = 1;
+  private static final int BODY_TIME = 2;
+  private static final ThreadLocal<IntFieldJsonParser> BODY_PARSER =
+      ThreadLocal.withInitial(() -> new IntFieldJsonParser("skierID", "liftID", "time"));
+
+  // POST /skiers/batch: a JSON array of complete rides, published as one batch frame
+  private static final String BATCH_PATH = "/batch";
+  private static final int DEFAULT_BATCH_MAX_ITEMS = 1000;
+  private static final int SC_MULTI_STATUS = 207;
+  private static final int ITEM_RESORT_ID = 0;
+  private static final int ITEM_SEASON_ID = 1;
+  private static final int ITEM_DAY_ID = 2;
+  private static final int ITEM_SKIER_ID = 3;
+  private static final int ITEM_LIFT_ID = 4;
+  private static final int ITEM_TIME = 5;
+  private static final ThreadLocal<IntFieldJsonParser> BATCH_PARSER = ThreadLocal.withInitial(
+      () -> new IntFieldJsonParser("resortID", "seasonID", "dayID", "skierID", "liftID", "time"));
+  private int batchMaxItems;
+
+  // wireFormat init-param: "json" (default) or "binary"; SkierConsumer accepts both
+  private boolean binaryWireFormat;
 
   @Override
   public void init() throws ServletException {
+    binaryWireFormat = "binary".equalsIgnoreCase(getInitParameter("wireFormat"));
+    int channelPoolSize = intInitParameter("channelPoolSize", DEFAULT_CHANNEL_POOL_SIZE);
+    acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(
+        intInitParameter("acquireTimeoutMs", DEFAULT_ACQUIRE_TIMEOUT_MS));
+    confirmTimeoutMs = intInitParameter("confirmTimeoutMs", DEFAULT_CONFIRM_TIMEOUT_MS);
+    batchMaxItems = intInitParameter("batchMaxItems", DEFAULT_BATCH_MAX_ITEMS);
+    reader = RideReader.forContext(getServletContext());
+
     try {
       ConnectionFactory factory = new ConnectionFactory();
-      factory.setHost("44.232.3.127");
+      String rabbitHost = getInitParameter("rabbitHost");
+      factory.setHost(rabbitHost == null || rabbitHost.trim().isEmpty() ? DEFAULT_RABBIT_HOST : rabbitHost.trim());
       factory.setPort(5672);
       factory.setUsername("admin");
       factory.setPassword("admin123");
 
       connection = factory.newConnection();
 
-      channelPool = new ArrayBlockingQueue<>(POOL_SIZE);
-      for (int i = 0; i < POOL_SIZE; i++) {
-        Channel ch = connection.createChannel();
-        ch.queueDeclare(QUEUE_NAME, true, false, false, null);
-        channelPool.offer(ch);
+      publisher = new RidePublisher(connection, QUEUE_NAME, channelPoolSize);
+      System.out.println("Initialized Channel Pool with size: " + publisher.size()
+          + ", wire format: " + (binaryWireFormat ? "binary" : "json"));
+
+      int batchMaxRides = intInitParameter("batchMaxRides", 0);
+      if (batchMaxRides > 1) {
+        int batchMaxDelayMicros = intInitParameter("batchMaxDelayMicros", DEFAULT_BATCH_MAX_DELAY_MICROS);
+        batcher = new RideBatcher(publisher, batchMaxRides, batchMaxDelayMicros, acquireTimeoutNanos);
+        System.out.println("Micro-batching up to " + batchMaxRides + " rides / " + batchMaxDelayMicros + " us");
+      }
+
+      if (Boolean.parseBoolean(getInitParameter("asyncIngestion"))) {
+        int threads = intInitParameter("asyncPublisherThreads", DEFAULT_ASYNC_PUBLISHER_THREADS);
+        int queueCapacity = intInitParameter("asyncQueueCapacity", DEFAULT_ASYNC_QUEUE_CAPACITY);
+        AtomicInteger threadIds = new AtomicInteger();
+        publisherStage = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+              Thread t = new Thread(r, "ride-publisher-" + threadIds.incrementAndGet());
+              t.setDaemon(true);
+              return t;
+            });
+        System.out.println("Async ingestion with " + threads + " publisher threads");
       }
-      System.out.println("Initialized Channel Pool with size: " + POOL_SIZE);
 
     } catch (Exception e) {
       throw new ServletException("Failed to connect/init RabbitMQ channel pool", e);
     }
   }
 
+  /**
+   * GET /skiers/{resortID}/seasons/{seasonID}/days/{dayID}/skiers/{skierID}: vertical for that day
+   * GET /skiers/{skierID}/vertical?resort={resortID}[&season={seasonID}]: totals per season
+   * GET /skiers/cache: read cache counters (hit rate, evictions, ...)
+   */
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-    resp.setContentType("text/plain");
-    resp.getWriter().write("It works!");
+    resp.setContentType("application/json");
+    String pathInfo = req.getPathInfo();
+    if (pathInfo == null || pathInfo.isEmpty()) {
+      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL format.");
+      return;
+    }
+    if (CACHE_STATS_PATH.equals(pathInfo)) {
+      resp.getWriter().write(reader.cacheStats());
+      return;
+    }
+
+    try {
+      int[] params = PATH_PARAMS.get();
+      String body;
+      if (LIFT_RIDE_PATH.match(pathInfo, params)) {
+        body = reader.dayVertical(params[0], params[1], params[2], params[3]);
+      } else if (VERTICAL_PATH.match(pathInfo, params)) {
+        String resort = req.getParameter("resort");
+        if (resort == null) {
+          sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Missing resort parameter.");
+          return;
+        }
+        String season = req.getParameter("season");
+        body = reader.seasonVerticals(params[0], Integer.parseInt(resort),
+            season == null ? null : Integer.valueOf(season));
+      } else {
+        sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL structure.");
+        return;
+      }
+
+      if (body == null) {
+        sendError(resp, HttpServletResponse.SC_NOT_FOUND, NOT_FOUND_MESSAGE);
+        return;
+      }
+      resp.setStatus(HttpServletResponse.SC_OK);
+      resp.getWriter().write(body);
+    } catch (NumberFormatException e) {
+      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid numerical value in URL");
+    } catch (Exception e) {
+      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal Server Error: " + e.getMessage());
+    }
   }
 
   @Override
@@ -61,56 +199,67 @@ public class SkierServlet extends HttpServlet {
       sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL format.");
       return;
     }
-
-    String[] pathParts = pathInfo.split("/");
-    if (pathParts.length != 8) {
-      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL structure.");
+    if (BATCH_PATH.equals(pathInfo)) {
+      doPostBatch(req, resp);
       return;
     }
 
     try {
-      int resortID = Integer.parseInt(pathParts[1]);
-      // pathParts[2] == "seasons"
-      int seasonID = Integer.parseInt(pathParts[3]);
-      // pathParts[4] == "days"
-      int dayID = Integer.parseInt(pathParts[5]);
-      // pathParts[6] == "skiers"
-      int urlSkierID = Integer.parseInt(pathParts[7]);
-
-      BufferedReader reader = req.getReader();
-      JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
-
-      if (!json.has("skierID") || !json.has("liftID") || !json.has("time")) {
+      int[] params = PATH_PARAMS.get();
+      if (!LIFT_RIDE_PATH.match(pathInfo, params)) {
+        sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid URL structure.");
+        return;
+      }
+      int resortID = params[0];
+      int seasonID = params[1];
+      int dayID = params[2];
+      int urlSkierID = params[3];
+
+      IntFieldJsonParser body = BODY_PARSER.get();
+      try {
+        body.parseObject(req.getInputStream());
+      } catch (NumberFormatException e) {
+        throw e;
+      } catch (IllegalArgumentException e) {
+        sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON payload.");
+        return;
+      }
+
+      if (!body.hasAll()) {
         sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Missing required fields.");
         return;
       }
 
-      int jsonSkierID = json.get("skierID").getAsInt();
+      int jsonSkierID = body.get(BODY_SKIER_ID);
       if (urlSkierID != jsonSkierID) {
         sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Skier ID mismatch between URL and payload.");
         return;
       }
 
-      int liftID = json.get("liftID").getAsInt();
-      int time = json.get("time").getAsInt();
+      int liftID = body.get(BODY_LIFT_ID);
+      int time = body.get(BODY_TIME);
 
-      JsonObject message = new JsonObject();
-      message.addProperty("resortID", resortID);
-      message.addProperty("seasonID", seasonID);
-      message.addProperty("dayID", dayID);
-      message.addProperty("skierID", jsonSkierID);
-      message.addProperty("liftID", liftID);
-      message.addProperty("time", time);
+      if (publisherStage != null) {
+        ingestAsync(req, resortID, seasonID, dayID, jsonSkierID, liftID, time);
+        return;
+      }
 
-      Channel ch = channelPool.take();
+      CompletableFuture<Void> confirmed = publish(resortID, seasonID, dayID, jsonSkierID, liftID, time);
+      if (confirmed == null) {
+        sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        return;
+      }
       try {
-        ch.basicPublish("", QUEUE_NAME, null, message.toString().getBytes());
-      } finally {
-        channelPool.offer(ch);
+        confirmed.get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, CONFIRM_TIMEOUT_MESSAGE);
+        return;
+      } catch (ExecutionException e) {
+        sendPublishFailure(resp, e.getCause());
+        return;
       }
 
-      resp.setStatus(HttpServletResponse.SC_CREATED);
-      resp.getWriter().write("{\"message\": \"Lift ride recorded successfully\"}");
+      sendCreated(resp);
 
     } catch (NumberFormatException e) {
       sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid numerical value in URL");
@@ -119,6 +268,213 @@ public class SkierServlet extends HttpServlet {
     }
   }
 
+  /**
+   * POST /skiers/batch: validates an array of rides in one streaming pass, publishes the valid
+   * ones to RabbitMQ as a single batch frame (one message, one confirm) and answers with a status
+   * per item: 201 if every item was accepted, 207 if any was rejected (even all of them, so the
+   * client still reads the statuses instead of treating the batch as one failure). An item
+   * with a missing field or a non-int value gets its own 400; malformed JSON rejects the whole
+   * batch, since the stream cannot be resynchronized.
+   */
+  private void doPostBatch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    int[] statuses = new int[16];
+    byte[] frame = new byte[LiftRideCodec.BATCH_HEADER_SIZE + 16 * LiftRideCodec.ENCODED_SIZE];
+    int items = 0;
+    int created = 0;
+
+    IntFieldJsonParser item = BATCH_PARSER.get();
+    try {
+      item.beginArray(req.getInputStream());
+      while (true) {
+        boolean valid;
+        try {
+          if (!item.nextObject()) {
+            break;
+          }
+          valid = item.hasAll();
+        } catch (NumberFormatException e) {
+          valid = false;
+        }
+        if (items == batchMaxItems) {
+          sendError(resp, HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+              "Batch exceeds " + batchMaxItems + " items.");
+          return;
+        }
+        if (items == statuses.length) {
+          statuses = Arrays.copyOf(statuses, items * 2);
+          frame = Arrays.copyOf(frame, LiftRideCodec.BATCH_HEADER_SIZE + items * 2 * LiftRideCodec.ENCODED_SIZE);
+        }
+        if (!valid) {
+          statuses[items++] = HttpServletResponse.SC_BAD_REQUEST;
+          continue;
+        }
+        LiftRideCodec.encodeInto(frame, LiftRideCodec.BATCH_HEADER_SIZE + created * LiftRideCodec.ENCODED_SIZE,
+            item.get(ITEM_RESORT_ID), item.get(ITEM_SEASON_ID), item.get(ITEM_DAY_ID),
+            item.get(ITEM_SKIER_ID), item.get(ITEM_LIFT_ID), item.get(ITEM_TIME));
+        statuses[items++] = HttpServletResponse.SC_CREATED;
+        created++;
+      }
+    } catch (IllegalArgumentException e) {
+      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Invalid JSON payload.");
+      return;
+    }
+
+    if (items == 0) {
+      sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Empty batch.");
+      return;
+    }
+    if (created > 0) {
+      LiftRideCodec.putInt(frame, 0, created);
+      byte[] body = Arrays.copyOf(frame, LiftRideCodec.BATCH_HEADER_SIZE + created * LiftRideCodec.ENCODED_SIZE);
+      CompletableFuture<Void> confirmed = publisher.publish(LiftRideCodec.BATCH_PROPERTIES, body, acquireTimeoutNanos);
+      if (confirmed == null) {
+        sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        return;
+      }
+      try {
+        confirmed.get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, CONFIRM_TIMEOUT_MESSAGE);
+        return;
+      } catch (ExecutionException e) {
+        sendPublishFailure(resp, e.getCause());
+        return;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+        return;
+      }
+    }
+
+    int rejected = items - created;
+    resp.setStatus(rejected == 0 ? HttpServletResponse.SC_CREATED : SC_MULTI_STATUS);
+    StringBuilder json = new StringBuilder(64 + items * 5);
+    json.append("{\"message\": \"").append(created).append(" of ").append(items)
+        .append(" lift rides recorded\", \"created\": ").append(created)
+        .append(", \"rejected\": ").append(rejected)
+        .append(", \"statuses\": [");
+    for (int i = 0; i < items; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(statuses[i]);
+    }
+    json.append("]}");
+    resp.getWriter().write(json.toString());
+  }
+
+  /**
+   * Publishes one ride, through the batcher when micro-batching is on.
+   *
+   * @return a future completed on broker confirm, or null if no channel was free
+   */
+  private CompletableFuture<Void> publish(int resortID, int seasonID, int dayID, int skierID, int liftID, int time) {
+    if (batcher != null) {
+      return batcher.add(resortID, seasonID, dayID, skierID, liftID, time);
+    }
+    byte[] message;
+    AMQP.BasicProperties properties;
+    if (binaryWireFormat) {
+      message = LiftRideCodec.encode(resortID, seasonID, dayID, skierID, liftID, time);
+      properties = LiftRideCodec.BINARY_PROPERTIES;
+    } else {
+      message = LiftRideCodec.encodeJson(resortID, seasonID, dayID, skierID, liftID, time);
+      properties = LiftRideCodec.JSON_PROPERTIES;
+    }
+    return publisher.publish(properties, message, acquireTimeoutNanos);
+  }
+
+  /**
+   * Async ingestion: the container thread only parses and validates. Publishing happens on the
+   * publisher stage, and the response is written from the confirm callback (or the async timeout).
+   */
+  private void ingestAsync(HttpServletRequest req, int resortID, int seasonID, int dayID,
+      int skierID, int liftID, int time) {
+    AsyncContext ctx = req.startAsync();
+    ctx.setTimeout(confirmTimeoutMs);
+    AtomicBoolean responded = new AtomicBoolean();
+    ctx.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) {
+        completeAsync(ctx, responded, HttpServletResponse.SC_SERVICE_UNAVAILABLE, CONFIRM_TIMEOUT_MESSAGE);
+      }
+
+      @Override
+      public void onError(AsyncEvent event) {
+        completeAsync(ctx, responded, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            "Internal Server Error: " + event.getThrowable());
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {}
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {}
+    });
+
+    try {
+      publisherStage.execute(() -> {
+        CompletableFuture<Void> confirmed;
+        try {
+          confirmed = publish(resortID, seasonID, dayID, skierID, liftID, time);
+        } catch (RuntimeException e) {
+          // answer now rather than leaving the client to the confirm timeout
+          completeAsync(ctx, responded, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+              "Internal Server Error: " + e.getMessage());
+          return;
+        }
+        if (confirmed == null) {
+          completeAsync(ctx, responded, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+          return;
+        }
+        confirmed.whenComplete((ignored, error) -> {
+          if (error == null) {
+            completeAsync(ctx, responded, HttpServletResponse.SC_CREATED, null);
+          } else if (error instanceof RejectedExecutionException) {
+            completeAsync(ctx, responded, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+          } else {
+            completeAsync(ctx, responded, HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                "Internal Server Error: " + error.getMessage());
+          }
+        });
+      });
+    } catch (RejectedExecutionException e) {
+      completeAsync(ctx, responded, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+    }
+  }
+
+  /** Writes the response once, whichever of confirm, failure or timeout gets there first. */
+  private void completeAsync(AsyncContext ctx, AtomicBoolean responded, int status, String error) {
+    if (!responded.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      HttpServletResponse resp = (HttpServletResponse) ctx.getResponse();
+      if (status == HttpServletResponse.SC_CREATED) {
+        sendCreated(resp);
+      } else {
+        sendError(resp, status, error);
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+    } finally {
+      ctx.complete();
+    }
+  }
+
+  private void sendCreated(HttpServletResponse resp) throws IOException {
+    resp.setStatus(HttpServletResponse.SC_CREATED);
+    resp.getWriter().write("{\"message\": \"Lift ride recorded successfully\"}");
+  }
+
+  private void sendPublishFailure(HttpServletResponse resp, Throwable cause) throws IOException {
+    if (cause instanceof RejectedExecutionException) {
+      sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY_MESSAGE);
+    } else {
+      sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal Server Error: " + cause.getMessage());
+    }
+  }
+
   private void sendError(HttpServletResponse resp, int statusCode, String message) throws IOException {
     resp.setStatus(statusCode);
     JsonObject errorResponse = new JsonObject();
@@ -126,15 +482,23 @@ public class SkierServlet extends HttpServlet {
     resp.getWriter().write(errorResponse.toString());
   }
 
+  private int intInitParameter(String name, int defaultValue) {
+    String value = getInitParameter(name);
+    return value == null || value.trim().isEmpty() ? defaultValue : Integer.parseInt(value.trim());
+  }
+
   @Override
   public void destroy() {
     try {
-      if (channelPool != null) {
-        for (Channel ch : channelPool) {
-          if (ch != null && ch.isOpen()) {
-            ch.close();
-          }
-        }
+      if (publisherStage != null) {
+        publisherStage.shutdown();
+        publisherStage.awaitTermination(5, TimeUnit.SECONDS);
+      }
+      if (batcher != null) {
+        batcher.close();
+      }
+      if (publisher != null) {
+        publisher.close();
       }
       if (connection != null && connection.isOpen()) {
         connection.close();
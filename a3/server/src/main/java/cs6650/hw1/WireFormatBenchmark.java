@@ -0,0 +1,29 @@
+package cs6650.hw1;
+
+/**
+ * JSON vs binary encode/decode of a lift ride message, as done by SkierServlet and SkierConsumer.
+ *
+ * Usage: -Dbench.ops=2000000
+ */
+public class WireFormatBenchmark {
+
+  public static void main(String[] args) {
+    int ops = Integer.getInteger("bench.ops", 2_000_000);
+
+    byte[] json = LiftRideCodec.encodeJson(3, 2025, 1, 12345, 17, 217);
+    byte[] binary = LiftRideCodec.encode(3, 2025, 1, 12345, 17, 217);
+    System.out.printf("message size: json=%d bytes, binary=%d bytes\n", json.length, binary.length);
+
+    for (int round = 1; round <= 2; round++) {
+      System.out.println("--- round " + round + " ---");
+      Microbench.run("encode json", ops,
+          () -> Microbench.consume(LiftRideCodec.encodeJson(3, 2025, 1, 12345, 17, 217)));
+      Microbench.run("encode binary", ops,
+          () -> Microbench.consume(LiftRideCodec.encode(3, 2025, 1, 12345, 17, 217)));
+      Microbench.run("decode json", ops,
+          () -> Microbench.consume(LiftRideCodec.decode(LiftRideCodec.CONTENT_TYPE_JSON, json)));
+      Microbench.run("decode binary", ops,
+          () -> Microbench.consume(LiftRideCodec.decode(LiftRideCodec.CONTENT_TYPE_BINARY, binary)));
+    }
+  }
+}